@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates configurations of a given size and nesting depth for the
+ * benchmarks.
+ */
+public final class ConfigGenerator {
+
+	private static final int FAN_OUT = 4;
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private ConfigGenerator() {
+	}
+
+	/**
+	 * Builds the property path of a leaf. All keys but the last one are
+	 * sections, leaves are spread over {@value #FAN_OUT} sections per level.
+	 *
+	 * @param leaf
+	 *            the number of the leaf
+	 * @param depth
+	 *            the number of keys of the path, at least 1
+	 * @return Example: s1.s3.key42
+	 */
+	public static String path(int leaf, int depth) {
+		StringBuilder sb = new StringBuilder();
+		int n = leaf;
+		for (int i = 0; i < depth - 1; i++) {
+			sb.append('s').append(n % FAN_OUT).append('.');
+			n /= FAN_OUT;
+		}
+		return sb.append("key").append(leaf).toString();
+	}
+
+	/**
+	 * @param entries
+	 *            the number of leaves
+	 * @param depth
+	 *            the number of keys of the path of every leaf
+	 * @return the property paths of all leaves
+	 */
+	public static List<String> paths(int entries, int depth) {
+		List<String> paths = new ArrayList<String>(entries);
+		for (int i = 0; i < entries; i++) {
+			paths.add(path(i, depth));
+		}
+		return paths;
+	}
+
+	/**
+	 * @param leaf
+	 *            the number of the leaf
+	 * @return a {@link String}, {@link Integer}, {@link Double} or
+	 *         {@link Boolean} value, depending on the leaf
+	 */
+	public static Object value(int leaf) {
+		switch (leaf % 4) {
+		case 0:
+			return leaf;
+		case 1:
+			return "value-" + leaf;
+		case 2:
+			return leaf + 0.5;
+		default:
+			return leaf % 8 == 3;
+		}
+	}
+
+	/**
+	 * Builds a nested configuration.
+	 *
+	 * @param entries
+	 *            the number of leaves
+	 * @param depth
+	 *            the number of keys of the path of every leaf
+	 * @return the root {@link Map} of the configuration
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> build(int entries, int depth) {
+		Map<String, Object> root = new HashMap<String, Object>();
+		for (int i = 0; i < entries; i++) {
+			String[] keys = path(i, depth).split("\\.");
+			Map<String, Object> map = root;
+			for (int j = 0; j < keys.length - 1; j++) {
+				Object next = map.get(keys[j]);
+				if (next == null) {
+					next = new HashMap<String, Object>();
+					map.put(keys[j], next);
+				}
+				map = (Map<String, Object>) next;
+			}
+			map.put(keys[keys.length - 1], value(i));
+		}
+		return root;
+	}
+
+	/**
+	 * @return a new, empty temporary yml-file that is deleted on exit
+	 * @throws IOException
+	 *             if the file could not be created
+	 */
+	public static String createTempFile() throws IOException {
+		File f = File.createTempFile("ironcommon-benchmark", ".yml");
+		f.deleteOnExit();
+		return f.getPath();
+	}
+}
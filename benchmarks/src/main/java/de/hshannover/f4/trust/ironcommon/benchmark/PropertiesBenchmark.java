@@ -0,0 +1,229 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hshannover.f4.trust.ironcommon.properties.Properties;
+import de.hshannover.f4.trust.ironcommon.properties.PropertiesMode;
+import de.hshannover.f4.trust.ironcommon.properties.PropertyException;
+import de.hshannover.f4.trust.ironcommon.properties.PropertyPath;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlWriter;
+
+/**
+ * Benchmarks for the getters, sub-{@link Properties} and {@link Properties#set}
+ * against generated configuration files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertiesBenchmark {
+
+	@Param({ "10", "1000" })
+	public int entries;
+
+	@Param({ "2", "6" })
+	public int depth;
+
+	@Param({ "RELOAD", "CACHED", "STREAMING", "OFF_HEAP" })
+	public PropertiesMode mode;
+
+	private String mFileName;
+
+	private Properties mProperties;
+
+	private String mIntPath;
+
+	private String mStringPath;
+
+	private String mDoublePath;
+
+	private String mBooleanPath;
+
+	private PropertyPath mPrecompiledIntPath;
+
+	private String[] mIntKeys;
+
+	private int mCounter;
+
+	/**
+	 * Writes the configuration file.
+	 *
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		mFileName = ConfigGenerator.createTempFile();
+		YamlWriter.persist(mFileName,
+				ConfigGenerator.build(entries, depth));
+		mProperties = new Properties(mFileName, mode);
+
+		// leaves in the middle of the configuration
+		List<String> paths = ConfigGenerator.paths(entries, depth);
+		int middle = entries / 2 - entries / 2 % 4;
+		mIntPath = paths.get(middle);
+		mStringPath = paths.get(middle + 1);
+		mDoublePath = paths.get(middle + 2);
+		mBooleanPath = paths.get(middle + 3);
+		mPrecompiledIntPath = new PropertyPath(mIntPath);
+		mIntKeys = mIntPath.split("\\.");
+	}
+
+	/**
+	 * Deletes the configuration file.
+	 */
+	@TearDown
+	public void tearDown() {
+		new File(mFileName).delete();
+	}
+
+	/**
+	 * @return the value of a leaf
+	 * @throws PropertyException
+	 *             if the lookup fails
+	 */
+	@Benchmark
+	public Object getValue() throws PropertyException {
+		return mProperties.getValue(mStringPath);
+	}
+
+	/**
+	 * @return the value of a leaf, looked up with a pre-parsed path
+	 * @throws PropertyException
+	 *             if the lookup fails
+	 */
+	@Benchmark
+	public Object getValuePropertyPath() throws PropertyException {
+		return mProperties.getValue(mPrecompiledIntPath);
+	}
+
+	/**
+	 * @return the value of an absent leaf
+	 */
+	@Benchmark
+	public Object getValueDefault() {
+		return mProperties.getValue("does.not.exist", "default");
+	}
+
+	/**
+	 * @return the value of a leaf
+	 * @throws PropertyException
+	 *             if the lookup fails
+	 */
+	@Benchmark
+	public String getString() throws PropertyException {
+		return mProperties.getString(mStringPath);
+	}
+
+	/**
+	 * @return the value of a leaf
+	 * @throws PropertyException
+	 *             if the lookup fails
+	 */
+	@Benchmark
+	public int getInt() throws PropertyException {
+		return mProperties.getInt(mIntPath);
+	}
+
+	/**
+	 * @return the value of a leaf
+	 * @throws PropertyException
+	 *             if the lookup fails
+	 */
+	@Benchmark
+	public double getDouble() throws PropertyException {
+		return mProperties.getDouble(mDoublePath);
+	}
+
+	/**
+	 * @return the value of a leaf
+	 * @throws PropertyException
+	 *             if the lookup fails
+	 */
+	@Benchmark
+	public boolean getBoolean() throws PropertyException {
+		return mProperties.getBoolean(mBooleanPath);
+	}
+
+	/**
+	 * @return the value of a leaf, looked up through a chain of
+	 *         sub-{@link Properties}, one per section
+	 * @throws PropertyException
+	 *             if the lookup fails
+	 */
+	@Benchmark
+	public int getSubPropertiesChain() throws PropertyException {
+		Properties properties = mProperties;
+		for (int i = 0; i < mIntKeys.length - 1; i++) {
+			properties = properties.get(mIntKeys[i]);
+		}
+		return properties.getInt(mIntKeys[mIntKeys.length - 1]);
+	}
+
+	/**
+	 * Stores a new value, so the file is really written every time.
+	 *
+	 * @throws PropertyException
+	 *             if the file could not be written
+	 */
+	@Benchmark
+	public void set() throws PropertyException {
+		mProperties.set(mIntPath, mCounter++);
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.hshannover.f4.trust.ironcommon.yaml.YamlReader;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlSnapshot;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlWriter;
+
+/**
+ * Benchmarks for {@link YamlReader#loadMap(String)},
+ * {@link YamlSnapshot#loadMap(String)} and
+ * {@link YamlWriter#persist(String, Object)} with generated configurations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YamlBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	public int entries;
+
+	@Param({ "2", "6" })
+	public int depth;
+
+	private String mFileName;
+
+	private Map<String, Object> mConfig;
+
+	private Map<String, Object> mOtherConfig;
+
+	private boolean mToggle;
+
+	/**
+	 * Writes the configuration file.
+	 *
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		mFileName = ConfigGenerator.createTempFile();
+		mConfig = ConfigGenerator.build(entries, depth);
+		mOtherConfig = ConfigGenerator.build(entries, depth);
+		mOtherConfig.put("changed", true);
+		YamlWriter.persist(mFileName, mConfig);
+	}
+
+	/**
+	 * Deletes the configuration file.
+	 */
+	@TearDown
+	public void tearDown() {
+		new File(mFileName).delete();
+		File dir = new File(mFileName).getAbsoluteFile().getParentFile();
+		new File(dir, "." + new File(mFileName).getName() + ".snapshot")
+				.delete();
+	}
+
+	/**
+	 * @return the parsed configuration file
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	@Benchmark
+	public Map<String, Object> loadMap() throws IOException {
+		return YamlReader.loadMap(mFileName);
+	}
+
+	/**
+	 * @return the configuration file read through its compiled snapshot
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	@Benchmark
+	public Map<String, Object> loadSnapshot() throws IOException {
+		return YamlSnapshot.loadMap(mFileName);
+	}
+
+	/**
+	 * Writes one of two different configurations, so the file is really
+	 * replaced every time.
+	 *
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	@Benchmark
+	public void persist() throws IOException {
+		mToggle = !mToggle;
+		YamlWriter.persist(mFileName, mToggle ? mOtherConfig : mConfig);
+	}
+
+	/**
+	 * Writes the content the file already has.
+	 *
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	@Benchmark
+	public void persistUnchanged() throws IOException {
+		if (mToggle) {
+			mToggle = false;
+			YamlWriter.persist(mFileName, mConfig);
+		}
+		YamlWriter.persist(mFileName, mConfig);
+	}
+}
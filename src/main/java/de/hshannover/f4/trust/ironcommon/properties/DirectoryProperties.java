@@ -0,0 +1,338 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.log4j.Logger;
+
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * Reads all property-files of a directory as one configuration. Every
+ * "*.yml" file is mounted under a key named after the file: the value
+ * "bar.key" of the file "foo.yml" has the property path "foo.bar.key". A
+ * file name may contain dots, e.g. "endpoint1.example.com.yml": a property
+ * path is resolved against the file with the longest name that is a prefix
+ * of it.
+ *
+ * The files are read through the shared {@link Properties} instances in
+ * cached mode, see {@link Properties#getShared(String)}. After the first load
+ * only files whose modification time or size changed are parsed again, and
+ * other users of the same files share the parsed content. {@link #refresh()}
+ * looks for added and removed files and loads all files in parallel on a
+ * {@link ForkJoinPool}.
+ *
+ * Values returned are copies, modifying them does not affect the files. Use
+ * {@link #get(String)} to change the values of a file.
+ */
+public class DirectoryProperties extends PropertiesView {
+
+	private static final String FILE_EXTENSION = ".yml";
+
+	private static Logger mLogger = Logger.getLogger(DirectoryProperties.class);
+
+	private final Path mDirectory;
+
+	private final ForkJoinPool mPool;
+
+	private volatile Map<String, Properties> mFiles;
+
+	/**
+	 * The highest number of keys of the mounted names, written before
+	 * {@link #mFiles}.
+	 */
+	private volatile int mMaxNameLength;
+
+	/**
+	 * Create a {@link DirectoryProperties} instance that loads the files on
+	 * the common {@link ForkJoinPool}.
+	 *
+	 * @param directory
+	 *            the directory of the property-files
+	 */
+	public DirectoryProperties(String directory) {
+		this(directory, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create a {@link DirectoryProperties} instance.
+	 *
+	 * @param directory
+	 *            the directory of the property-files
+	 * @param pool
+	 *            the {@link ForkJoinPool} the files are loaded on
+	 */
+	public DirectoryProperties(String directory, ForkJoinPool pool) {
+		ObjectChecks.checkForNullReference(directory, "directory is null");
+		ObjectChecks.checkForNullReference(pool, "pool is null");
+		mDirectory = Paths.get(directory);
+		mPool = pool;
+	}
+
+	/**
+	 * Looks for added and removed property-files and loads all files in
+	 * parallel. Files that did not change since they were loaded last are not
+	 * parsed again.
+	 *
+	 * @throws PropertyException
+	 *             if the directory could not be read or a file could not be
+	 *             loaded; all other files are loaded nevertheless
+	 */
+	public void refresh() throws PropertyException {
+		Map<String, Properties> files = scan();
+		PropertyException error = mPool.invoke(new LoadTask(files.keySet()
+				.toArray(new String[files.size()]), files.values().toArray(
+				new Properties[files.size()]), 0, files.size()));
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private synchronized Map<String, Properties> scan()
+			throws PropertyException {
+		Map<String, Properties> old = mFiles;
+		Map<String, Properties> files = new TreeMap<String, Properties>();
+		int maxNameLength = 1;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+				mDirectory, "*" + FILE_EXTENSION)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				// hidden files are temporary files of writers
+				if (name.startsWith(".") || !Files.isRegularFile(file)) {
+					continue;
+				}
+				name = name.substring(0,
+						name.length() - FILE_EXTENSION.length());
+				PropertyPath namePath = PropertyPath.of(name);
+				if (!namePath.toString().equals(name)) {
+					// trailing dots are dropped from property paths
+					mLogger.warn("Ignoring " + file + ", its name can not be "
+							+ "part of a property path");
+					continue;
+				}
+				maxNameLength = Math.max(maxNameLength, namePath.getLength());
+				Properties properties = old != null ? old.get(name) : null;
+				if (properties == null) {
+					properties = Properties.getShared(file.toString(),
+							PropertiesMode.CACHED);
+				}
+				files.put(name, properties);
+			}
+		} catch (IOException e) {
+			throw new PropertyException(e.getMessage());
+		}
+		if (old != null) {
+			for (Map.Entry<String, Properties> file : old.entrySet()) {
+				if (!files.containsKey(file.getKey())) {
+					// the file is gone, its metrics are not needed anymore
+					FileMetrics.unregister(mDirectory.resolve(
+							file.getKey() + FILE_EXTENSION).toString());
+				}
+			}
+		}
+		files = Collections.unmodifiableMap(files);
+		mMaxNameLength = maxNameLength;
+		mFiles = files;
+		return files;
+	}
+
+	/**
+	 * @return the mounted property-files, loaded by {@link #refresh()} if
+	 *         they were never loaded before
+	 */
+	private Map<String, Properties> files() throws PropertyException {
+		Map<String, Properties> files = mFiles;
+		if (files == null) {
+			refresh();
+			files = mFiles;
+		}
+		return files;
+	}
+
+	/**
+	 * @return the keys the property-files are mounted under
+	 * @throws PropertyException
+	 *             if the directory could not be read
+	 */
+	public Set<String> getNames() throws PropertyException {
+		return files().keySet();
+	}
+
+	/**
+	 * Get the {@link Properties} of a single property-file, e.g. to change its
+	 * values.
+	 *
+	 * @param name
+	 *            the key the file is mounted under, the file name without
+	 *            ".yml"
+	 * @return the {@link Properties} of the file
+	 * @throws PropertyException
+	 *             if there is no such file
+	 */
+	public Properties get(String name) throws PropertyException {
+		ObjectChecks.checkForNullReference(name, "name is null");
+		Properties properties = files().get(name);
+		if (properties == null) {
+			throw new PropertyException("no property-file[" + name
+					+ "] in directory " + mDirectory);
+		}
+		return properties;
+	}
+
+	/**
+	 * Load the properties of all files as a {@link Map}, after a
+	 * {@link #refresh()}.
+	 *
+	 * @return a {@link Map} from the names of the files to copies of their
+	 *         content
+	 * @throws PropertyException
+	 *             if the directory could not be read or a file could not be
+	 *             loaded
+	 */
+	public Map<String, Object> load() throws PropertyException {
+		refresh();
+		Map<String, Object> properties = new TreeMap<String, Object>();
+		for (Map.Entry<String, Properties> file : mFiles.entrySet()) {
+			properties.put(file.getKey(), PropertiesReader.copyOfValue(file
+					.getValue().loadSubtree()));
+		}
+		return properties;
+	}
+
+	/**
+	 * Resolves a property path against the file whose name is its longest
+	 * prefix.
+	 */
+	@Override
+	Object find(PropertyPath propertyPath) throws PropertyException {
+		if (propertyPath.isRoot()) {
+			return null;
+		}
+		Map<String, Properties> files = files();
+		String[] keys = propertyPath.getKeys();
+		// the longest mounted name wins, most names have a single key
+		for (int i = Math.min(keys.length, mMaxNameLength); i > 0; i--) {
+			Properties file = files.get(i == 1 ? keys[0] : new PropertyPath(
+					Arrays.copyOf(keys, i)).toString());
+			if (file != null) {
+				return PropertiesReader.walk(file.loadSubtree(),
+						new PropertyPath(Arrays.copyOfRange(keys, i,
+								keys.length)));
+			}
+		}
+		return null;
+	}
+
+	@Override
+	PropertyException notFound(PropertyPath propertyPath) {
+		return new PropertyException("property path[" + propertyPath
+				+ "] is not a property key in directory " + mDirectory);
+	}
+
+	/**
+	 * Loads a range of property-files, splitting it until a single file is
+	 * left.
+	 */
+	private static final class LoadTask extends
+			RecursiveTask<PropertyException> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] mNames;
+
+		private final Properties[] mFiles;
+
+		private final int mFrom;
+
+		private final int mTo;
+
+		private LoadTask(String[] names, Properties[] files, int from, int to) {
+			mNames = names;
+			mFiles = files;
+			mFrom = from;
+			mTo = to;
+		}
+
+		/**
+		 * @return the error of the first file that could not be loaded or
+		 *         null
+		 */
+		@Override
+		protected PropertyException compute() {
+			if (mTo - mFrom == 1) {
+				try {
+					mFiles[mFrom].loadSubtree();
+					return null;
+				} catch (PropertyException e) {
+					mLogger.warn("Could not load " + mNames[mFrom] + ": "
+							+ e.getMessage());
+					return e;
+				} catch (RuntimeException e) {
+					// a file that is no valid YAML
+					mLogger.warn("Could not load " + mNames[mFrom] + ": "
+							+ e.getMessage());
+					return new PropertyException(mNames[mFrom] + FILE_EXTENSION
+							+ " could not be loaded: " + e.getMessage());
+				}
+			} else if (mTo <= mFrom) {
+				return null;
+			}
+			int middle = (mFrom + mTo) >>> 1;
+			LoadTask upper = new LoadTask(mNames, mFiles, middle, mTo);
+			upper.fork();
+			PropertyException error = new LoadTask(mNames, mFiles, mFrom,
+					middle).compute();
+			PropertyException upperError = upper.join();
+			return error != null ? error : upperError;
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A single {@link WatchService} and thread that watch the directories of all
+ * watched property-files. Changes are debounced per file: a
+ * {@link PropertiesWatcher} is only called when its file has not been
+ * modified again for the debounce time of the watcher, so an editor saving
+ * in bursts causes a single reload.
+ */
+final class FileWatchService implements Runnable {
+
+	private static Logger mLogger = Logger.getLogger(FileWatchService.class);
+
+	private static FileWatchService instance;
+
+	private final WatchService mWatchService;
+
+	private final ScheduledExecutorService mScheduler;
+
+	private final Map<Path, WatchKey> mDirectories = new HashMap<Path, WatchKey>();
+
+	private final Map<Path, Set<PropertiesWatcher>> mWatchers = new HashMap<Path, Set<PropertiesWatcher>>();
+
+	private final Map<PropertiesWatcher, ScheduledFuture<?>> mPending =
+			new HashMap<PropertiesWatcher, ScheduledFuture<?>>();
+
+	private FileWatchService() throws IOException {
+		mWatchService = FileSystems.getDefault().newWatchService();
+		mScheduler = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						return daemon(r, "ironcommon-properties-reload");
+					}
+				});
+		daemon(this, "ironcommon-properties-watcher").start();
+	}
+
+	/**
+	 * @return the process-wide {@link FileWatchService}
+	 * @throws IOException
+	 *             if the {@link WatchService} could not be created
+	 */
+	static synchronized FileWatchService getInstance() throws IOException {
+		if (instance == null) {
+			instance = new FileWatchService();
+		}
+		return instance;
+	}
+
+	/**
+	 * Registers a {@link PropertiesWatcher} for a file.
+	 *
+	 * @param file
+	 *            the absolute, normalized path of the file
+	 * @param watcher
+	 *            the {@link PropertiesWatcher} to be called on changes
+	 * @throws IOException
+	 *             if the directory of the file can not be watched
+	 */
+	synchronized void register(Path file, PropertiesWatcher watcher)
+			throws IOException {
+		Path directory = file.getParent();
+		if (!mDirectories.containsKey(directory)) {
+			mDirectories.put(directory, directory.register(mWatchService,
+					ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+		}
+		Set<PropertiesWatcher> watchers = mWatchers.get(file);
+		if (watchers == null) {
+			watchers = new HashSet<PropertiesWatcher>();
+			mWatchers.put(file, watchers);
+		}
+		watchers.add(watcher);
+	}
+
+	/**
+	 * Unregisters a {@link PropertiesWatcher}. The directory is no longer
+	 * watched when no file in it is watched anymore.
+	 *
+	 * @param file
+	 *            the absolute, normalized path of the file
+	 * @param watcher
+	 *            the {@link PropertiesWatcher} to be removed
+	 */
+	synchronized void unregister(Path file, PropertiesWatcher watcher) {
+		Set<PropertiesWatcher> watchers = mWatchers.get(file);
+		if (watchers == null || !watchers.remove(watcher)) {
+			return;
+		}
+		ScheduledFuture<?> pending = mPending.remove(watcher);
+		if (pending != null) {
+			pending.cancel(false);
+		}
+		if (watchers.isEmpty()) {
+			mWatchers.remove(file);
+			Path directory = file.getParent();
+			for (Path watched : mWatchers.keySet()) {
+				if (watched.getParent().equals(directory)) {
+					return;
+				}
+			}
+			WatchKey key = mDirectories.remove(directory);
+			if (key != null) {
+				key.cancel();
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = mWatchService.take();
+			} catch (InterruptedException e) {
+				return;
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+
+			Path directory = (Path) key.watchable();
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					// events were lost, every file in the directory may
+					// have changed
+					changedDirectory(directory);
+				} else {
+					changed(directory.resolve((Path) event.context()));
+				}
+			}
+
+			if (!key.reset()) {
+				synchronized (this) {
+					mDirectories.remove(directory);
+				}
+			}
+		}
+	}
+
+	private synchronized void changedDirectory(Path directory) {
+		for (Path file : mWatchers.keySet()) {
+			if (file.getParent().equals(directory)) {
+				changed(file);
+			}
+		}
+	}
+
+	private synchronized void changed(Path file) {
+		Set<PropertiesWatcher> watchers = mWatchers.get(file);
+		if (watchers == null) {
+			return;
+		}
+		for (PropertiesWatcher watcher : watchers) {
+			schedule(watcher);
+		}
+	}
+
+	private void schedule(final PropertiesWatcher watcher) {
+		// every further change restarts the debounce time
+		ScheduledFuture<?> pending = mPending.get(watcher);
+		if (pending != null) {
+			pending.cancel(false);
+		}
+		mPending.put(watcher, mScheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (FileWatchService.this) {
+					mPending.remove(watcher);
+				}
+				try {
+					watcher.fileChanged();
+				} catch (RuntimeException e) {
+					mLogger.error("Reloading a property-file failed", e);
+				}
+			}
+		}, Math.max(watcher.getDebounceMillis(), 0), TimeUnit.MILLISECONDS));
+	}
+
+	private static Thread daemon(Runnable runnable, String name) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+}
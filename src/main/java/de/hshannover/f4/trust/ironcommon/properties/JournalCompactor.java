@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import de.hshannover.f4.trust.ironcommon.yaml.YamlJournal;
+
+/**
+ * Compacts the journals of property-files in the background, see
+ * {@link YamlJournal#compact(String)}. A compaction is scheduled by the first
+ * append after the last compaction, so a file written often is compacted once
+ * per delay.
+ */
+final class JournalCompactor {
+
+	private static Logger mLogger = Logger.getLogger(JournalCompactor.class);
+
+	private static final ScheduledExecutorService SCHEDULER = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r,
+							"ironcommon-properties-compactor");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private static final Map<String, ScheduledFuture<?>> PENDING = new HashMap<String, ScheduledFuture<?>>();
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private JournalCompactor() {
+	}
+
+	/**
+	 * Schedules the compaction of the journal of a property-file, unless one
+	 * is already scheduled to run within the delay.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file
+	 * @param delayMillis
+	 *            the time in milliseconds until the journal is compacted
+	 */
+	static synchronized void schedule(final String fileName, long delayMillis) {
+		ScheduledFuture<?> pending = PENDING.get(fileName);
+		if (pending != null) {
+			if (pending.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+				return;
+			}
+			pending.cancel(false);
+		}
+		PENDING.put(fileName, SCHEDULER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				// appends from now on need another compaction
+				synchronized (JournalCompactor.class) {
+					PENDING.remove(fileName);
+				}
+				try {
+					YamlJournal.compact(fileName);
+				} catch (IOException | RuntimeException e) {
+					// the journal is kept and compacted after the next append
+					mLogger.warn("Could not compact the journal of "
+							+ fileName + ": " + e.getMessage());
+				}
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * Stacks several {@link Properties} as layers, e.g. defaults, a site
+ * configuration and a per-host override, and reads them as one merged
+ * configuration.
+ *
+ * A value of a higher layer replaces the value of the same property path in
+ * the lower layers; {@link Map}s of several layers are merged key by key. The
+ * merged tree is computed once and indexed by property path, so a lookup is a
+ * single probe. When a layer changes, only the subtrees whose layer content
+ * changed are merged again, all others are reused. A change is detected by
+ * the identity of the loaded content, so the layers should be in cached mode;
+ * otherwise every access merges all layers again.
+ *
+ * Values returned are copies, modifying them does not affect the layers.
+ */
+public class LayeredProperties extends PropertiesView {
+
+	private final Properties[] mLayers;
+
+	private volatile MergedProperties mMerged;
+
+	/**
+	 * Create a {@link LayeredProperties} instance.
+	 *
+	 * @param layers
+	 *            the layers, the first has the lowest priority and the last
+	 *            the highest
+	 */
+	public LayeredProperties(Properties... layers) {
+		ObjectChecks.checkForNullReference(layers, "layers is null");
+		if (layers.length == 0) {
+			throw new IllegalArgumentException("layers is empty");
+		}
+		for (Properties layer : layers) {
+			ObjectChecks.checkForNullReference(layer, "layer is null");
+		}
+		mLayers = layers.clone();
+	}
+
+	/**
+	 * @return the layers, the first has the lowest priority and the last the
+	 *         highest
+	 */
+	public List<Properties> getLayers() {
+		return Arrays.asList(mLayers.clone());
+	}
+
+	/**
+	 * Load the merged properties as a {@link Map}.
+	 *
+	 * @return a copy of the merged {@link Map}: keys can either point to a
+	 *         "deeper nested" {@link Map} or a value.
+	 * @throws PropertyException
+	 *             if a layer could not be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Object> load() throws PropertyException {
+		return (Map<String, Object>) PropertiesReader.copyOfValue(current()
+				.mProperties);
+	}
+
+	/**
+	 * Resolves a property path against the merged tree.
+	 */
+	@Override
+	Object find(PropertyPath propertyPath) throws PropertyException {
+		return current().get(propertyPath);
+	}
+
+	@Override
+	PropertyException notFound(PropertyPath propertyPath) {
+		return new PropertyException("property path[" + propertyPath
+				+ "] is not a property key of any layer!");
+	}
+
+	/**
+	 * @return the merged tree of the current contents of all layers
+	 */
+	@SuppressWarnings("unchecked")
+	private MergedProperties current() throws PropertyException {
+		// the layers are loaded outside of the monitor, they take the locks
+		// of their files
+		Object[] layers = new Object[mLayers.length];
+		for (int i = 0; i < layers.length; i++) {
+			layers[i] = mLayers[i].loadSubtree();
+		}
+
+		MergedProperties merged = mMerged;
+		if (merged != null && isSame(layers, merged.mLayers)) {
+			return merged;
+		}
+		synchronized (this) {
+			merged = mMerged;
+			if (merged == null) {
+				merged = new MergedProperties(layers,
+						(Map<String, Object>) merge(layers, null, null));
+				mMerged = merged;
+			} else if (!isSame(layers, merged.mLayers)) {
+				merged = new MergedProperties(layers,
+						(Map<String, Object>) merge(layers, merged.mLayers,
+								merged.mProperties));
+				mMerged = merged;
+			}
+			return merged;
+		}
+	}
+
+	/**
+	 * Merges the values of one property path of all layers.
+	 *
+	 * @param layers
+	 *            the values of the layers, null if a layer has no value
+	 * @param oldLayers
+	 *            the values the previous merge was computed from or null
+	 * @param oldMerged
+	 *            the result of the previous merge
+	 * @return the merged value, null if no layer has a value
+	 */
+	private static Object merge(Object[] layers, Object[] oldLayers,
+			Object oldMerged) {
+		if (oldLayers != null && isSame(layers, oldLayers)) {
+			// no layer changed below this path
+			return oldMerged;
+		}
+
+		int top = top(layers);
+		if (top < 0) {
+			return null;
+		} else if (!(layers[top] instanceof Map)) {
+			return layers[top];
+		}
+
+		int bottom = bottom(layers, top);
+		Set<Object> keys = new LinkedHashSet<Object>();
+		int maps = 0;
+		for (int i = bottom; i <= top; i++) {
+			if (layers[i] != null) {
+				keys.addAll(((Map<?, ?>) layers[i]).keySet());
+				maps++;
+			}
+		}
+		if (maps == 1) {
+			// nothing to merge, the map of the layer is shared
+			return layers[top];
+		}
+
+		Map<?, ?> oldMap = null;
+		if (oldLayers != null && oldMerged instanceof Map) {
+			oldMap = (Map<?, ?>) oldMerged;
+		}
+		Map<Object, Object> merged = new HashMap<Object, Object>(
+				(int) (keys.size() / 0.75f) + 1);
+		for (Object key : keys) {
+			Object value = merge(children(layers, key),
+					oldMap != null ? children(oldLayers, key) : null,
+					oldMap != null ? oldMap.get(key) : null);
+			if (value != null) {
+				merged.put(key, value);
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * @return the values of a key in the maps of the layers that are merged,
+	 *         null for all other layers
+	 */
+	private static Object[] children(Object[] layers, Object key) {
+		Object[] children = new Object[layers.length];
+		int top = top(layers);
+		if (top >= 0 && layers[top] instanceof Map) {
+			for (int i = bottom(layers, top); i <= top; i++) {
+				if (layers[i] != null) {
+					children[i] = ((Map<?, ?>) layers[i]).get(key);
+				}
+			}
+		}
+		return children;
+	}
+
+	/**
+	 * @return the highest layer with a value or -1
+	 */
+	private static int top(Object[] layers) {
+		int top = layers.length - 1;
+		while (top >= 0 && layers[top] == null) {
+			top--;
+		}
+		return top;
+	}
+
+	/**
+	 * @return the lowest layer whose map is merged with the map of the top
+	 *         layer, a value that is not a map hides all lower layers
+	 */
+	private static int bottom(Object[] layers, int top) {
+		int bottom = top;
+		while (bottom > 0 && (layers[bottom - 1] == null
+				|| layers[bottom - 1] instanceof Map)) {
+			bottom--;
+		}
+		return bottom;
+	}
+
+	private static boolean isSame(Object[] layers, Object[] other) {
+		for (int i = 0; i < layers.length; i++) {
+			if (layers[i] != other[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The merged tree together with the contents of the layers it was merged
+	 * from.
+	 */
+	private static final class MergedProperties {
+
+		private final Object[] mLayers;
+
+		private final Map<String, Object> mProperties;
+
+		private volatile Map<PropertyPath, Object> mIndex;
+
+		private MergedProperties(Object[] layers,
+				Map<String, Object> properties) {
+			mLayers = layers;
+			mProperties = properties;
+		}
+
+		/**
+		 * Looks up a value in the index of all property paths, the index is
+		 * built on the first lookup.
+		 */
+		private Object get(PropertyPath propertyPath) {
+			Map<PropertyPath, Object> index = mIndex;
+			if (index == null) {
+				// threads racing here build equal indexes
+				index = PropertiesReader.buildIndex(mProperties);
+				mIndex = index;
+			}
+			Object value = index.get(propertyPath);
+			if (value == null) {
+				value = PropertiesReader.walk(mProperties, propertyPath);
+			}
+			return value;
+		}
+	}
+}
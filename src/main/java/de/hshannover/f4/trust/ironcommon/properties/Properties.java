@@ -39,40 +39,79 @@
 package de.hshannover.f4.trust.ironcommon.properties;
 
 import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.log4j.Logger;
 
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
 import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlJournal;
 
 /**
  * Class that loads, handles and stores application properties in
  * configuration-files.
  *
+ * By default every access reads the configuration-file again. In cached mode
+ * the parsed content is kept in memory and only reloaded when the file
+ * changes; values returned in this mode are copies, so modifying them does not
+ * affect the cache. The cached content is never modified: a change builds a
+ * new content that shares all unchanged subtrees with the old one and
+ * replaces it at once, so readers never lock and always see a consistent
+ * state. In streaming mode single values are resolved while the file is
+ * parsed, without loading the whole file; see {@link PropertiesMode}.
+ *
  * @author Marcel Reichenbach
  */
 public class Properties {
 
+	/**
+	 * The default time in milliseconds the property-file must not be modified
+	 * before a change is reported to the {@link PropertiesChangeListener}s.
+	 */
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+	/**
+	 * The default time in milliseconds the journal of the property-file is
+	 * compacted into the file after the first change was appended to it.
+	 */
+	public static final long DEFAULT_COMPACTION_DELAY_MILLIS = 1000;
+
 	private PropertiesWriter mWriter;
 
 	private PropertiesReader mReader;
 
+	private PropertiesWatcher mWatcher;
+
+	private PropertiesAsync mAsync;
+
 	private String mFileName;
 
-	private String mPropertyPathPrefix = "";
+	private PropertyPath mPropertyPathPrefix = PropertyPath.ROOT;
 
 	private Logger mLogger = Logger.getLogger(Properties.class);
 
 	private Properties(Properties propertyOriginal, String propertyKey) {
 		mWriter = propertyOriginal.mWriter;
 		mReader = propertyOriginal.mReader;
+		mWatcher = propertyOriginal.mWatcher;
+		mAsync = propertyOriginal.mAsync;
 		mFileName = propertyOriginal.mFileName;
-		mPropertyPathPrefix = addPath(propertyOriginal.mPropertyPathPrefix,
-				propertyKey);
+		mPropertyPathPrefix = propertyOriginal.mPropertyPathPrefix
+				.append(propertyKey);
 	}
 
 	/**
@@ -82,10 +121,326 @@ public class Properties {
 	 *            the file name of the property-file.
 	 */
 	public Properties(String fileName) {
+		this(fileName, false);
+	}
+
+	/**
+	 * Create a {@link Properties} instance for a given filename.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file.
+	 * @param cached
+	 *            if true, the parsed content of the property-file is kept in
+	 *            memory and the file is only parsed again when its
+	 *            modification time or size changes
+	 */
+	public Properties(String fileName, boolean cached) {
+		this(fileName, cached ? PropertiesMode.CACHED : PropertiesMode.RELOAD);
+	}
+
+	/**
+	 * Create a {@link Properties} instance for a given filename.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file.
+	 * @param mode
+	 *            the way the property-file is accessed
+	 */
+	public Properties(String fileName, PropertiesMode mode) {
 		ObjectChecks.checkForNullReference(fileName, "fileName is null");
 		mFileName = fileName;
 		mWriter = new PropertiesWriter(mFileName);
-		mReader = new PropertiesReader(mFileName);
+		mReader = new PropertiesReader(mFileName, mode);
+		mWatcher = new PropertiesWatcher(mFileName, mReader);
+		mAsync = new PropertiesAsync(this);
+	}
+
+	/**
+	 * Returns the {@link Properties} instance shared by the whole process for
+	 * a property-file. Every call with a name of the same file, resolved to
+	 * its canonical path, and the same mode returns the same instance, so all
+	 * users share one cache, one watcher and one writer instead of parsing
+	 * the file independently. Settings and listeners therefore apply to all
+	 * users of the file. The instance is kept as long as it is referenced
+	 * anywhere, a later call may return a new instance.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file.
+	 * @param mode
+	 *            the way the property-file is accessed
+	 * @return the shared {@link Properties} instance, its file name is the
+	 *         name it was first requested with
+	 */
+	public static Properties getShared(String fileName, PropertiesMode mode) {
+		return PropertiesRegistry.get(fileName, mode);
+	}
+
+	/**
+	 * Returns the {@link Properties} instance shared by the whole process for
+	 * a property-file in cached mode, see
+	 * {@link #getShared(String, PropertiesMode)}.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file.
+	 * @return the shared {@link Properties} instance
+	 */
+	public static Properties getShared(String fileName) {
+		return getShared(fileName, PropertiesMode.CACHED);
+	}
+
+	/**
+	 * @return the way the property-file is accessed
+	 */
+	public PropertiesMode getMode() {
+		return mReader.getMode();
+	}
+
+	/**
+	 * @return true, if the parsed content of the property-file is cached
+	 */
+	public boolean isCached() {
+		return mReader.isCached();
+	}
+
+	/**
+	 * Enables or disables reading the property-file through a compiled
+	 * snapshot. The snapshot is stored beside the property-file and read
+	 * instead of parsing the file as long as the file does not change, which
+	 * makes the first access after a restart faster. The setting applies to
+	 * all {@link Properties} returned by {@link #get(String)}.
+	 *
+	 * @param snapshot
+	 *            if true, the property-file is read through the snapshot
+	 */
+	public void setSnapshotEnabled(boolean snapshot) {
+		mReader.setSnapshotEnabled(snapshot);
+	}
+
+	/**
+	 * @return true, if the property-file is read through a compiled snapshot
+	 */
+	public boolean isSnapshotEnabled() {
+		return mReader.isSnapshotEnabled();
+	}
+
+	/**
+	 * Enables or disables canonicalizing the loaded content. Keys and scalar
+	 * values equal to ones loaded before, from this or any other
+	 * property-file, are replaced by the instances loaded before. With a
+	 * cached mode equal subtrees are shared as well. This saves heap for
+	 * configurations with many repetitions, but costs time on every parse.
+	 * The setting applies to content loaded afterwards and to all
+	 * {@link Properties} returned by {@link #get(String)}.
+	 *
+	 * @param interning
+	 *            if true, the loaded content is canonicalized
+	 */
+	public void setInterningEnabled(boolean interning) {
+		mReader.setInterningEnabled(interning);
+	}
+
+	/**
+	 * @return true, if the loaded content is canonicalized
+	 */
+	public boolean isInterningEnabled() {
+		return mReader.isInterningEnabled();
+	}
+
+	/**
+	 * Enables or disables the journal of the property-file, see
+	 * {@link #setJournalEnabled(boolean, long)}. The journal is compacted
+	 * {@link #DEFAULT_COMPACTION_DELAY_MILLIS} after the first change.
+	 *
+	 * @param journal
+	 *            if true, changes are appended to the journal
+	 */
+	public void setJournalEnabled(boolean journal) {
+		setJournalEnabled(journal, DEFAULT_COMPACTION_DELAY_MILLIS);
+	}
+
+	/**
+	 * Enables or disables the journal of the property-file. With the journal,
+	 * {@link #set(String, Object)} and transactions append a small record of
+	 * the changed values to a journal beside the property-file and force it
+	 * to the storage device, instead of writing the whole file. A background
+	 * thread compacts the journal into the property-file once the delay after
+	 * the first change has passed. Loading the property-file always applies
+	 * the changes of a journal that is not compacted yet. The setting applies
+	 * to all {@link Properties} returned by {@link #get(String)}; other
+	 * {@link Properties} of the same file in cached mode should enable it as
+	 * well, otherwise they only see the changes after the compaction. The same
+	 * holds for {@link PropertiesChangeListener}s.
+	 *
+	 * @param journal
+	 *            if true, changes are appended to the journal
+	 * @param compactionDelayMillis
+	 *            the time in milliseconds the journal is compacted into the
+	 *            file after the first change was appended
+	 */
+	public void setJournalEnabled(boolean journal, long compactionDelayMillis) {
+		mWriter.setCompactionDelay(compactionDelayMillis);
+		mReader.setJournalEnabled(journal);
+		if (!journal && YamlJournal.exists(mFileName)) {
+			// the next write of the whole file drops the journal anyway
+			JournalCompactor.schedule(mFileName, 0);
+		}
+	}
+
+	/**
+	 * @return true, if changes are appended to the journal of the
+	 *         property-file
+	 */
+	public boolean isJournalEnabled() {
+		return mReader.isJournalEnabled();
+	}
+
+	/**
+	 * Writes the changes in the journal of the property-file into the file
+	 * now, see {@link #setJournalEnabled(boolean, long)}.
+	 *
+	 * @throws PropertyException
+	 *             if the journal or the file could not be read or written
+	 */
+	public void compact() throws PropertyException {
+		try {
+			mWriter.compact();
+		} catch (IOException e) {
+			throw new PropertyException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Starts watching the property-file in the background with the
+	 * {@link #DEFAULT_DEBOUNCE_MILLIS}. When the file changes, the cached
+	 * content is reloaded and all {@link PropertiesChangeListener}s are
+	 * notified. Watching applies to the property-file, so it is shared with
+	 * all {@link Properties} instances created via {@link #get(String)}.
+	 *
+	 * @throws PropertyException
+	 *             if the directory of the property-file can not be watched
+	 */
+	public void startWatching() throws PropertyException {
+		startWatching(DEFAULT_DEBOUNCE_MILLIS);
+	}
+
+	/**
+	 * Starts watching the property-file in the background. Changes are
+	 * reported once the file has not been modified for the given time, so
+	 * several writes in a short burst lead to a single reload.
+	 *
+	 * @param debounceMillis
+	 *            the time in milliseconds the property-file must not be
+	 *            modified before a change is reported
+	 * @throws PropertyException
+	 *             if the directory of the property-file can not be watched
+	 */
+	public void startWatching(long debounceMillis) throws PropertyException {
+		try {
+			mWatcher.start(debounceMillis);
+		} catch (IOException e) {
+			throw new PropertyException("Could not watch " + mFileName + ": "
+					+ e.getMessage());
+		}
+		PropertiesRegistry.watchingChanged(mFileName, getMode(), mWatcher);
+	}
+
+	/**
+	 * Stops watching the property-file.
+	 */
+	public void stopWatching() {
+		mWatcher.stop();
+		PropertiesRegistry.watchingChanged(mFileName, getMode(), mWatcher);
+	}
+
+	/**
+	 * @return the {@link PropertiesWatcher} shared with all
+	 *         sub-{@link Properties}
+	 */
+	PropertiesWatcher getWatcher() {
+		return mWatcher;
+	}
+
+	/**
+	 * @return the {@link PropertiesReader} shared with all
+	 *         sub-{@link Properties}
+	 */
+	PropertiesReader getReader() {
+		return mReader;
+	}
+
+	/**
+	 * @return true, if the property-file is watched for changes
+	 */
+	public boolean isWatching() {
+		return mWatcher.isWatching();
+	}
+
+	/**
+	 * Adds a {@link PropertiesChangeListener} that is notified when the
+	 * property-file changed, while the file is watched (see
+	 * {@link #startWatching()}). Changes made through {@link #set(String,
+	 * Object)} are reported as well.
+	 *
+	 * @param listener
+	 *            the {@link PropertiesChangeListener}, it is called with this
+	 *            {@link Properties} instance
+	 */
+	public void addChangeListener(PropertiesChangeListener listener) {
+		ObjectChecks.checkForNullReference(listener, "listener is null");
+		mWatcher.addListener(this, listener);
+	}
+
+	/**
+	 * Removes a {@link PropertiesChangeListener}.
+	 *
+	 * @param listener
+	 *            the {@link PropertiesChangeListener} to be removed
+	 */
+	public void removeChangeListener(PropertiesChangeListener listener) {
+		mWatcher.removeListener(listener);
+	}
+
+	/**
+	 * Adds a {@link PropertiesDiffListener} that is notified when the subtree
+	 * of this {@link Properties} instance changed, while the file is watched
+	 * (see {@link #startWatching()}). Changes elsewhere in the property-file
+	 * are not reported to it. The listener receives the added, removed and
+	 * changed property paths relative to this instance, compared with the
+	 * content seen at the previous change.
+	 *
+	 * @param listener
+	 *            the {@link PropertiesDiffListener}, it is called with this
+	 *            {@link Properties} instance
+	 * @throws PropertyException
+	 *             if the property-file could not be loaded to compare later
+	 *             changes with
+	 */
+	public void addDiffListener(PropertiesDiffListener listener)
+			throws PropertyException {
+		ObjectChecks.checkForNullReference(listener, "listener is null");
+		try {
+			mWatcher.addDiffListener(this, listener);
+		} catch (IOException e) {
+			throw new PropertyException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes a {@link PropertiesDiffListener}.
+	 *
+	 * @param listener
+	 *            the {@link PropertiesDiffListener} to be removed
+	 */
+	public void removeDiffListener(PropertiesDiffListener listener) {
+		mWatcher.removeDiffListener(listener);
+	}
+
+	/**
+	 * @return the property path of this instance, relative to the root of the
+	 *         property-file
+	 */
+	PropertyPath getPropertyPathPrefix() {
+		return mPropertyPathPrefix;
 	}
 
 	/**
@@ -120,6 +475,83 @@ public class Properties {
 			mWriter.save(properties);
 		} catch (IOException e) {
 			throw new PropertyException(e.getMessage());
+		} finally {
+			// the caller still owns the map, so parse the file on the next
+			// access
+			mReader.invalidate();
+		}
+	}
+
+	/**
+	 * Set the {@link Executor} that runs {@link #loadAsync()},
+	 * {@link #saveAsync(Map)} and {@link #setAsync(PropertyPath, Object)}. The
+	 * executor is shared by all {@link Properties} instances returned by
+	 * {@link #get(String)}. By default a shared pool of two daemon threads
+	 * with room for 1024 queued tasks is used; when an executor rejects a
+	 * task, the future of the operation completes with the
+	 * {@link java.util.concurrent.RejectedExecutionException}.
+	 *
+	 * @param executor
+	 *            the {@link Executor} to be used, null for the default one
+	 */
+	public void setExecutor(Executor executor) {
+		mAsync.setExecutor(executor);
+	}
+
+	/**
+	 * @return the {@link Executor} that runs the asynchronous operations
+	 */
+	public Executor getExecutor() {
+		return mAsync.getExecutor();
+	}
+
+	/**
+	 * Load the properties as a {@link Map} without blocking the caller. The
+	 * file is loaded after all asynchronous saves and sets requested before.
+	 *
+	 * @return a {@link CompletableFuture} that completes with the same
+	 *         {@link Map} as {@link #load()} or with its
+	 *         {@link PropertyException}
+	 */
+	public CompletableFuture<Map<String, Object>> loadAsync() {
+		return mAsync.load();
+	}
+
+	/**
+	 * Save all properties in a file without blocking the caller. The map is
+	 * copied, so it may be modified as soon as this method returns. Saves and
+	 * sets that were requested before and have not started yet are dropped,
+	 * their futures complete when this save is done.
+	 *
+	 * @param properties
+	 *            the {@link Map} with all stored deeper nested {@link Map}s
+	 *            and/or values.
+	 * @return a {@link CompletableFuture} that completes when the file is
+	 *         written or with the {@link PropertyException} of
+	 *         {@link #save(Map)}
+	 */
+	@SuppressWarnings("unchecked")
+	public CompletableFuture<Void> saveAsync(Map<String, Object> properties) {
+		ObjectChecks.checkForNullReference(properties, "properties is null");
+		return mAsync.save((Map<String, Object>) PropertiesReader
+				.copyOfValue(properties));
+	}
+
+	/**
+	 * Load the properties for read-only access. In cached mode the cached
+	 * {@link Map} is returned, it must not be modified.
+	 *
+	 * @return a {@link Map}: keys can either point to a "deeper nested"
+	 *         {@link Map} or a value.
+	 * @throws PropertyException
+	 *             if the file could not be opened, created or is directed to a
+	 *             directory
+	 */
+	private Map<String, Object> loadShared() throws PropertyException {
+		try {
+			return mReader.loadShared();
+		} catch (IOException e) {
+			throw new PropertyException(e.getMessage());
 		}
 	}
 
@@ -142,6 +574,25 @@ public class Properties {
 		return propertyCopy;
 	}
 
+	/**
+	 * Load the {@link Map} this instance points to for read-only access, see
+	 * {@link #loadShared()}.
+	 *
+	 * @return the {@link Map} at the property path of this instance or an
+	 *         empty {@link Map}, if there is none
+	 * @throws PropertyException
+	 *             if the file could not be opened, created or is directed to a
+	 *             directory
+	 */
+	@SuppressWarnings("unchecked")
+	Map<String, Object> loadSubtree() throws PropertyException {
+		Object value = find(loadShared(), PropertyPath.ROOT);
+		if (value instanceof Map) {
+			return (Map<String, Object>) value;
+		}
+		return Collections.emptyMap();
+	}
+
 	/**
 	 * Get the value from the property path (Example: foo.bar.key). If the
 	 * property path is a empty String, the full root map is returned.
@@ -153,38 +604,119 @@ public class Properties {
 	 *             if the propertyKey-Path is not a property key or is a not
 	 *             part of a property path.
 	 */
-	@SuppressWarnings("unchecked")
 	public Object getValue(String propertyPath) throws PropertyException {
-		// add the PreFixPropertyPath if this Property is a copy deeper level
-		String fullPropertyPath = addPath(mPropertyPathPrefix, propertyPath);
+		return getValue(PropertyPath.of(propertyPath));
+	}
 
-		// check propertyPath
-		ObjectChecks.checkForNullReference(fullPropertyPath,
-				"propertyPath is null");
+	/**
+	 * Get the value from the property path. If the property path is the
+	 * {@link PropertyPath#ROOT} path, the full root map is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the value from the propertyPath.
+	 * @throws PropertyException
+	 *             if the propertyKey-Path is not a property key or is a not
+	 *             part of a property path.
+	 */
+	public Object getValue(PropertyPath propertyPath) throws PropertyException {
+		return copyIfCached(lookup(propertyPath));
+	}
+
+	/**
+	 * Resolves a property path against the loaded properties. In cached mode
+	 * the returned value is part of the cache and must not be modified.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the value from the propertyPath.
+	 * @throws PropertyException
+	 *             if the propertyKey-Path is not a property key or is a not
+	 *             part of a property path.
+	 */
+	private Object lookup(PropertyPath propertyPath) throws PropertyException {
+		Object value = resolve(propertyPath);
+		mReader.getMetrics().recordLookup(value != null);
+		if (value == null) {
+			throw notFound(propertyPath);
+		}
+		return value;
+	}
 
-		// split propertyPath
-		String[] propertyKeyArray = fullPropertyPath.split("\\.");
+	/**
+	 * Resolves a property path like {@link #lookup(PropertyPath)}, but
+	 * returns null instead of throwing a {@link PropertyException} when the
+	 * path does not exist or the properties could not be loaded.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the value from the propertyPath or null
+	 */
+	private Object lookupOrNull(PropertyPath propertyPath) {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		Object value;
+		try {
+			value = resolve(propertyPath);
+		} catch (PropertyException e) {
+			value = null;
+		}
+		mReader.getMetrics().recordLookup(value != null);
+		return value;
+	}
 
-		// load the application properties
-		Map<String, Object> applicationConfigs = load();
+	/**
+	 * Resolves a property path in streaming mode while parsing the file, in
+	 * cached mode through the index of all paths, otherwise against the
+	 * loaded properties.
+	 *
+	 * @param propertyPath
+	 *            the property path relative to this instance
+	 * @return the value or null, if the path does not exist
+	 * @throws PropertyException
+	 *             if the file could not be opened, created or is directed to a
+	 *             directory
+	 */
+	private Object resolve(PropertyPath propertyPath) throws PropertyException {
+		if (mReader.getMode() == PropertiesMode.RELOAD) {
+			return find(loadShared(), propertyPath);
+		}
 
-		// return the full root map
-		if (fullPropertyPath.equals("")) {
-			return applicationConfigs;
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		try {
+			return mReader.loadValue(mPropertyPathPrefix.append(propertyPath));
+		} catch (IOException e) {
+			throw new PropertyException(e.getMessage());
 		}
+	}
 
-		// iterate the root Map for every token
-		for (int i = 0; i < propertyKeyArray.length; i++) {
-			Object tmp = applicationConfigs.get(propertyKeyArray[i]);
+	/**
+	 * Walks the keys of the prefix and the path through the nested maps,
+	 * without concatenating both.
+	 *
+	 * @param applicationConfigs
+	 *            the root {@link Map} of the properties
+	 * @param propertyPath
+	 *            the property path relative to this instance
+	 * @return the value or null, if the path does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	private Object find(Map<String, Object> applicationConfigs,
+			PropertyPath propertyPath) {
+		// check propertyPath
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+
+		String[] prefixKeys = mPropertyPathPrefix.getKeys();
+		String[] pathKeys = propertyPath.getKeys();
+		int length = prefixKeys.length + pathKeys.length;
+		for (int i = 0; i < length; i++) {
+			String key = i < prefixKeys.length ? prefixKeys[i]
+					: pathKeys[i - prefixKeys.length];
+			Object tmp = applicationConfigs.get(key);
 			if (tmp == null) {
-				if (propertyKeyArray.length > 1) {
-					throw new PropertyException("property path["
-							+ fullPropertyPath + "] have not a property key["
-							+ propertyKeyArray[i] + "] !");
-				} else {
-					throw new PropertyException(propertyKeyArray[i]
-							+ "] is not a property key!");
-				}
+				return null;
 			}
 			if (tmp instanceof Map) {
 				applicationConfigs = (Map<String, Object>) tmp;
@@ -196,23 +728,197 @@ public class Properties {
 	}
 
 	/**
-	 * Get the value from the property path. If the property path does not
-	 * exist, the default value is returned.
+	 * Builds the exception for a property path that does not exist. Only
+	 * called on failure, so the message is not built on every lookup.
+	 *
+	 * @param propertyPath
+	 *            the property path relative to this instance
+	 * @return a {@link PropertyException} naming the missing key
+	 * @throws PropertyException
+	 *             if the properties could not be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	private PropertyException notFound(PropertyPath propertyPath)
+			throws PropertyException {
+		PropertyPath fullPropertyPath = mPropertyPathPrefix
+				.append(propertyPath);
+		Map<String, Object> applicationConfigs = loadShared();
+		String key = null;
+		for (int i = 0; i < fullPropertyPath.getLength(); i++) {
+			key = fullPropertyPath.getKey(i);
+			Object tmp = applicationConfigs.get(key);
+			if (!(tmp instanceof Map)) {
+				break;
+			}
+			applicationConfigs = (Map<String, Object>) tmp;
+		}
+		if (fullPropertyPath.getLength() > 1) {
+			return new PropertyException("property path[" + fullPropertyPath
+					+ "] have not a property key[" + key + "] !");
+		} else {
+			return new PropertyException(key + "] is not a property key!");
+		}
+	}
+
+	/**
+	 * In cached mode maps and lists of the cache are never handed out, a copy
+	 * is returned instead.
+	 *
+	 * @param value
+	 *            a value from {@link #lookup(PropertyPath)}
+	 * @return the value or a copy of it
+	 */
+	private Object copyIfCached(Object value) {
+		if (mReader.isCached()) {
+			return PropertiesReader.copyOfValue(value);
+		}
+		return value;
+	}
+
+	/**
+	 * Get the value from the property path. If the property path does not
+	 * exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value from the propertyPath.
+	 */
+	public Object getValue(String propertyPath, Object defaultValue) {
+		return getValue(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the value from the property path. If the property path does not
+	 * exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value from the propertyPath.
+	 */
+	public Object getValue(PropertyPath propertyPath, Object defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return copyIfCached(o);
+	}
+
+	/**
+	 * Get the values of several property paths at once. All values are
+	 * resolved against the same state of the property-file: the file is
+	 * loaded once and common prefixes of the property paths are walked only
+	 * once, instead of one load per value.
+	 *
+	 * @param propertyPaths
+	 *            Example: foo.bar.key
+	 * @return the property paths that exist with their values, in the order
+	 *         they were given
+	 * @throws PropertyException
+	 *             if the file could not be opened, created or is directed to a
+	 *             directory
+	 */
+	public Map<String, Object> getValues(Collection<String> propertyPaths)
+			throws PropertyException {
+		ObjectChecks.checkForNullReference(propertyPaths,
+				"propertyPaths is null");
+		Map<String, PropertyPath> parsed = new LinkedHashMap<String, PropertyPath>();
+		for (String propertyPath : propertyPaths) {
+			parsed.put(propertyPath,
+					mPropertyPathPrefix.append(PropertyPath.of(propertyPath)));
+		}
+
+		Map<PropertyPath, Object> values;
+		try {
+			values = mReader.loadValues(parsed.values());
+		} catch (IOException e) {
+			throw new PropertyException(e.getMessage());
+		}
+
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, PropertyPath> e : parsed.entrySet()) {
+			Object value = values.get(e.getValue());
+			mReader.getMetrics().recordLookup(value != null);
+			if (value != null) {
+				result.put(e.getKey(), copyIfCached(value));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the values of several property paths at once, like
+	 * {@link #getValues(Collection)}, in a holder with typed getters.
+	 *
+	 * @param propertyPaths
+	 *            Example: foo.bar.key
+	 * @return the values of the property paths
+	 * @throws PropertyException
+	 *             if the file could not be opened, created or is directed to a
+	 *             directory
+	 */
+	public PropertyValues getPropertyValues(Collection<String> propertyPaths)
+			throws PropertyException {
+		return new PropertyValues(getValues(propertyPaths),
+				mReader.getConverter());
+	}
+
+	/**
+	 * Binds the subtree at the property path to a new instance of a class.
+	 * The class needs a constructor without parameters; every key of the
+	 * subtree is stored through the public setter (key "port" through
+	 * setPort) or the field of the same name, other keys are ignored.
+	 *
+	 * In cached mode the instance is created only once per content of the
+	 * property-file and returned again until the file changes, so it must not
+	 * be modified. In the other modes every call creates a new instance.
 	 *
 	 * @param propertyPath
-	 *            Example: foo.bar.key
-	 * @param defaultValue
-	 *            is returned when the propertyPath does not exist
-	 * @return the value from the propertyPath.
+	 *            Example: foo.bar
+	 * @param type
+	 *            the class to be instantiated
+	 * @param <T>
+	 *            the type of the instance
+	 * @return the instance holding the values of the subtree
+	 * @throws PropertyException
+	 *             if the property path does not point to a subtree, the class
+	 *             can not be instantiated or a value can not be converted to
+	 *             the type of its setter or field
 	 */
-	public Object getValue(String propertyPath, Object defaultValue) {
-		Object o = null;
+	public <T> T bind(String propertyPath, Class<T> type)
+			throws PropertyException {
+		return bind(PropertyPath.of(propertyPath), type);
+	}
+
+	/**
+	 * Binds the subtree at the property path to a new instance of a class,
+	 * see {@link #bind(String, Class)}.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param type
+	 *            the class to be instantiated
+	 * @param <T>
+	 *            the type of the instance
+	 * @return the instance holding the values of the subtree
+	 * @throws PropertyException
+	 *             if the property path does not point to a subtree, the class
+	 *             can not be instantiated or a value can not be converted to
+	 *             the type of its setter or field
+	 */
+	public <T> T bind(PropertyPath propertyPath, Class<T> type)
+			throws PropertyException {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		ObjectChecks.checkForNullReference(type, "type is null");
 		try {
-			o = getValue(propertyPath);
-		} catch (PropertyException e) {
-			return defaultValue;
+			return mReader.bind(mPropertyPathPrefix.append(propertyPath), type);
+		} catch (IOException e) {
+			throw new PropertyException(e.getMessage());
 		}
-		return o;
 	}
 
 	/**
@@ -227,7 +933,22 @@ public class Properties {
 	 *             {@link String}
 	 */
 	public String getString(String propertyPath) throws PropertyException {
-		Object o = getValue(propertyPath);
+		return getString(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the String-value from the property path.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the {@link String} value for the given propertyPath
+	 * @throws PropertyException
+	 *             If the propertyKey-Path is not a property key or is a not
+	 *             part of a property path; also when the value is not a
+	 *             {@link String}
+	 */
+	public String getString(PropertyPath propertyPath) throws PropertyException {
+		Object o = lookup(propertyPath);
 		return o.toString();
 	}
 
@@ -242,13 +963,26 @@ public class Properties {
 	 * @return the value for the given propertyPath
 	 */
 	public String getString(String propertyPath, String defaultValue) {
-		Object o = getValue(propertyPath, defaultValue);
-		if (o != null) {
-			return o.toString();
-		} else {
-			// if the defaultValue is null
-			return (String) o;
+		return getString(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the String-value from the property path. If the property path does
+	 * not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public String getString(PropertyPath propertyPath, String defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			// the defaultValue may be null
+			return defaultValue;
 		}
+		return o.toString();
 	}
 
 	/**
@@ -263,8 +997,22 @@ public class Properties {
 	 *             {@link Integer}
 	 */
 	public int getInt(String propertyPath) throws PropertyException {
-		Object o = getValue(propertyPath);
-		return Integer.parseInt(o.toString());
+		return getInt(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the int-value from the property path.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the {@link Integer} value for the given propertyPath
+	 * @throws PropertyException
+	 *             If the propertyKey-Path is not a property key or is a not
+	 *             part of a property path; also when the value is not a
+	 *             {@link Integer}
+	 */
+	public int getInt(PropertyPath propertyPath) throws PropertyException {
+		return mReader.getConverter().toInt(lookup(propertyPath));
 	}
 
 	/**
@@ -278,8 +1026,25 @@ public class Properties {
 	 * @return the value for the given propertyPath
 	 */
 	public int getInt(String propertyPath, int defaultValue) {
-		Object o = getValue(propertyPath, defaultValue);
-		return Integer.parseInt(o.toString());
+		return getInt(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the int-value from the property path. If the property path does not
+	 * exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public int getInt(PropertyPath propertyPath, int defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return mReader.getConverter().toInt(o);
 	}
 
 	/**
@@ -295,8 +1060,22 @@ public class Properties {
 	 *             {@link Double}
 	 */
 	public double getDouble(String propertyPath) throws PropertyException {
-		Object o = getValue(propertyPath);
-		return Double.parseDouble(o.toString());
+		return getDouble(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the double-value from the property path.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the {@link Double} value for the given propertyPath
+	 * @throws PropertyException
+	 *             If the propertyKey-Path is not a property key or is a not
+	 *             part of a property path; also when the value is not a
+	 *             {@link Double}
+	 */
+	public double getDouble(PropertyPath propertyPath) throws PropertyException {
+		return mReader.getConverter().toDouble(lookup(propertyPath));
 	}
 
 	/**
@@ -310,8 +1089,25 @@ public class Properties {
 	 * @return the {@link Double} value for the given propertyPath
 	 */
 	public double getDouble(String propertyPath, double defaultValue) {
-		Object o = getValue(propertyPath, defaultValue);
-		return Double.parseDouble(o.toString());
+		return getDouble(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the double-value from the property path. If the property path does
+	 * not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the {@link Double} value for the given propertyPath
+	 */
+	public double getDouble(PropertyPath propertyPath, double defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return mReader.getConverter().toDouble(o);
 	}
 
 	/**
@@ -326,8 +1122,23 @@ public class Properties {
 	 *             {@link Boolean}
 	 */
 	public boolean getBoolean(String propertyPath) throws PropertyException {
-		Object o = getValue(propertyPath);
-		return Boolean.parseBoolean(o.toString());
+		return getBoolean(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the boolean-value from the property path.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the {@link Boolean} value for the given propertyPath
+	 * @throws PropertyException
+	 *             If the propertyKey-Path is not a property key or is a not
+	 *             part of a property path; also when the value is not a
+	 *             {@link Boolean}
+	 */
+	public boolean getBoolean(PropertyPath propertyPath)
+			throws PropertyException {
+		return ValueConverter.toBoolean(lookup(propertyPath));
 	}
 
 	/**
@@ -341,8 +1152,25 @@ public class Properties {
 	 * @return the {@link Boolean} value for the given propertyPath
 	 */
 	public boolean getBoolean(String propertyPath, boolean defaultValue) {
-		Object o = getValue(propertyPath, defaultValue);
-		return Boolean.parseBoolean(o.toString());
+		return getBoolean(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the boolean-value from the property path. If the property path does
+	 * not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the {@link Boolean} value for the given propertyPath
+	 */
+	public boolean getBoolean(PropertyPath propertyPath, boolean defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return ValueConverter.toBoolean(o);
 	}
 
 	/**
@@ -353,7 +1181,7 @@ public class Properties {
 	 * @return a {@link Set} containing all property keys
 	 */
 	public Set<String> getKeySet() throws PropertyException {
-		return load().keySet();
+		return new HashSet<String>(loadShared().keySet());
 	}
 
 	/**
@@ -377,50 +1205,99 @@ public class Properties {
 	}
 
 	/**
+	 * Adds the given values to the properties {@link Map} corresponding to the
+	 * configuration file and stores the file once.
 	 *
-	 * Add a property path to an existing.
-	 *
-	 * @param propertyPath
-	 *            a property path that will be the prefix to a new concatenated
-	 *            path. Example: foo.bar
-	 * @param pathToAdded
-	 *            a property path to be appended new.property
-	 * @return Example: foo.bar.new.property; if propertyPath is null or an
-	 *         empty {@link String}, then pathToAdded is returned.
+	 * @param changes
+	 *            the full property paths and the values to be stored there,
+	 *            applied in the given order
+	 * @throws PropertyException
+	 *             If the propertyKey-Path is not a property key or is a not
+	 *             part of a property path
 	 */
-	private String addPath(String propertyPath, String pathToAdded) {
-		if (propertyPath == null || propertyPath.equals("")) {
-			return pathToAdded;
+	void addToRootMap(List<Map.Entry<PropertyPath, Object>> changes)
+			throws PropertyException {
+		// no other writer may change the file between loading and saving
+		Lock lock = FileLocks.lockForWriting(mFileName, mReader.getMetrics());
+		try {
+			addToRootMapLocked(changes);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void addToRootMapLocked(
+			List<Map.Entry<PropertyPath, Object>> changes)
+			throws PropertyException {
+		Map<String, Object> configMap;
+		Map<String, Object> previous = null;
+		Set<Map<String, Object>> copiedMaps = null;
+		if (mReader.isCached()) {
+			// the cached tree is never modified, readers may still use it.
+			// Only the maps on the changed paths are copied, the new tree
+			// shares all other subtrees with it.
+			previous = loadShared();
+			configMap = new HashMap<String, Object>(previous);
+			copiedMaps = Collections
+					.newSetFromMap(new IdentityHashMap<Map<String, Object>, Boolean>());
+			copiedMaps.add(configMap);
 		} else {
-			return new StringBuilder(propertyPath).append('.')
-					.append(pathToAdded).toString();
+			// load configMap from disk
+			configMap = load();
+		}
+
+		List<PropertyPath> changed = new ArrayList<PropertyPath>(
+				changes.size());
+		for (Map.Entry<PropertyPath, Object> change : changes) {
+			changed.add(change.getKey());
+			Object propertyValue = change.getValue();
+			// in cached mode the value ends up in the cache, so the caller
+			// must not be able to modify it afterwards
+			if (mReader.isCached()) {
+				propertyValue = PropertiesReader.copyOfValue(propertyValue);
+			}
+			addToMap(configMap, change.getKey(), propertyValue, copiedMaps);
+		}
+
+		// save all, the written map becomes the new cache content. Only the
+		// changed values are replaced in the text of the file if possible.
+		try {
+			if (mReader.isJournalEnabled()) {
+				mWriter.append(configMap, changes);
+			} else {
+				mWriter.save(configMap, changes);
+			}
+		} catch (IOException e) {
+			mReader.invalidate();
+			throw new PropertyException(e.getMessage());
 		}
+		mReader.update(configMap, previous, changed);
 	}
 
 	/**
-	 * Adds a given value object to the properties {@link Map} corresponding to
-	 * the configuration file, creates deeper nested maps if necessary.
+	 * Adds a given value object to a properties {@link Map}, creates deeper
+	 * nested maps if necessary.
 	 *
+	 * @param configMap
+	 *            the root {@link Map} of the properties
 	 * @param propertyPath
 	 *            a property path where the value will be stored at
 	 * @param propertyValue
 	 *            the value to be added to the root map
-	 * @throws PropertyException
-	 *             If the propertyKey-Path is not a property key or is a not
-	 *             part of a property path
+	 * @param copiedMaps
+	 *            if not null, only the maps in this set may be modified, all
+	 *            other maps on the path are copied first and the copies are
+	 *            added to the set
 	 */
 	@SuppressWarnings("unchecked")
-	private void addToRootMap(String propertyPath, Object propertyValue)
-			throws PropertyException {
-		// split propertyPath
-		String[] propertyKeyArray = propertyPath.split("\\.");
-
-		// load configMap from disk
-		Map<String, Object> configMap = load();
+	private void addToMap(Map<String, Object> configMap,
+			PropertyPath propertyPath, Object propertyValue,
+			Set<Map<String, Object>> copiedMaps) {
+		String[] propertyKeyArray = propertyPath.getKeys();
 
 		// if simple token add too root map
 		if (propertyKeyArray.length == 1) {
-			configMap.put(propertyPath, propertyValue);
+			configMap.put(propertyKeyArray[0], propertyValue);
 		}
 
 		// add to root map
@@ -432,7 +1309,13 @@ public class Properties {
 			foundedValue = deeperNestedMap.get(propertyKeyArray[i]);
 			if (foundedValue instanceof Map) {
 				// go deeper if something was found
-				deeperNestedMap = (Map<String, Object>) foundedValue;
+				Map<String, Object> nestedMap = (Map<String, Object>) foundedValue;
+				if (copiedMaps != null && !copiedMaps.contains(nestedMap)) {
+					nestedMap = new HashMap<String, Object>(nestedMap);
+					copiedMaps.add(nestedMap);
+					deeperNestedMap.put(propertyKeyArray[i], nestedMap);
+				}
+				deeperNestedMap = nestedMap;
 			} else {
 				// if foundedValue == null or not a Map
 				// then build from the i position new nested map(s)
@@ -451,9 +1334,6 @@ public class Properties {
 						propertyValue);
 			}
 		}
-
-		// save all
-		save(configMap);
 	}
 
 	/**
@@ -542,7 +1422,165 @@ public class Properties {
 		ObjectChecks
 				.checkForNullReference(propertyPath, "propertyPath is null");
 
+		set(PropertyPath.of(propertyPath), propertyValue);
+	}
+
+	/**
+	 * Save the value with a given key. {@link Map} and {@link List} can only
+	 * contain simple data-types.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param propertyValue
+	 *            only {@link String}, {@link Integer}, {@link Double},
+	 *            {@link Boolean}, {@link Map} and {@link List} are supported
+	 * @throws PropertyException
+	 *             If the propertyKey-Path is not a property key or is not part
+	 *             of a property path.
+	 */
+	public void set(PropertyPath propertyPath, Object propertyValue)
+			throws PropertyException {
+		// check propertyPath
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+
 		// check propertyValue
+		checkValue(propertyValue);
+
+		// add the mPreFixPropertyPath if this Property is a copy with a deeper
+		// level
+		PropertyPath fullPropertyPath = getFullPath(propertyPath);
+
+		// add propertyValue with the fullPropertyPath
+		Map.Entry<PropertyPath, Object> change = new SimpleImmutableEntry<PropertyPath, Object>(
+				fullPropertyPath, propertyValue);
+		addToRootMap(Collections.singletonList(change));
+
+		mLogger.debug("Set the property value: " + propertyValue + " on key: "
+				+ fullPropertyPath);
+	}
+
+	/**
+	 * Save the value with a given key without blocking the caller. See
+	 * {@link #setAsync(PropertyPath, Object)}.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param propertyValue
+	 *            only {@link String}, {@link Integer}, {@link Double},
+	 *            {@link Boolean}, {@link Map} and {@link List} are supported
+	 * @return a {@link CompletableFuture} that completes when the value is
+	 *         written
+	 */
+	public CompletableFuture<Void> setAsync(String propertyPath,
+			Object propertyValue) {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+
+		return setAsync(PropertyPath.of(propertyPath), propertyValue);
+	}
+
+	/**
+	 * Save the value with a given key without blocking the caller. The value
+	 * is copied, so it may be modified as soon as this method returns. All
+	 * values set while an earlier write is still running are stored together
+	 * with a single write of the property-file.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param propertyValue
+	 *            only {@link String}, {@link Integer}, {@link Double},
+	 *            {@link Boolean}, {@link Map} and {@link List} are supported
+	 * @return a {@link CompletableFuture} that completes when the value is
+	 *         written or with the {@link PropertyException} of
+	 *         {@link #set(PropertyPath, Object)}
+	 */
+	public CompletableFuture<Void> setAsync(PropertyPath propertyPath,
+			Object propertyValue) {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+
+		PropertyPath fullPropertyPath;
+		try {
+			checkValue(propertyValue);
+			fullPropertyPath = getFullPath(propertyPath);
+		} catch (PropertyException e) {
+			CompletableFuture<Void> failed = new CompletableFuture<Void>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+
+		return mAsync.set(new SimpleImmutableEntry<PropertyPath, Object>(
+				fullPropertyPath, PropertiesReader.copyOfValue(propertyValue)));
+	}
+
+	/**
+	 * Starts a transaction for setting many values at once. The values given
+	 * to {@link PropertiesTransaction#set(String, Object)} are stored with a
+	 * single read and write of the property-file on
+	 * {@link PropertiesTransaction#commit()}. Property paths are relative to
+	 * this {@link Properties} instance.
+	 *
+	 * @return a new {@link PropertiesTransaction}
+	 */
+	public PropertiesTransaction beginTransaction() {
+		return new PropertiesTransaction(this);
+	}
+
+	/**
+	 * Stores all values of a transaction with a single write of the
+	 * property-file.
+	 *
+	 * @param changes
+	 *            the property paths relative to this {@link Properties}
+	 *            instance and the values to be stored there, applied in the
+	 *            given order
+	 * @throws PropertyException
+	 *             if the property-file could not be read or written
+	 */
+	void commit(List<Map.Entry<PropertyPath, Object>> changes)
+			throws PropertyException {
+		List<Map.Entry<PropertyPath, Object>> fullChanges = new ArrayList<Map.Entry<PropertyPath, Object>>(
+				changes.size());
+		for (Map.Entry<PropertyPath, Object> change : changes) {
+			fullChanges.add(new SimpleImmutableEntry<PropertyPath, Object>(
+					getFullPath(change.getKey()), change.getValue()));
+		}
+
+		addToRootMap(fullChanges);
+
+		mLogger.debug("Set " + fullChanges.size()
+				+ " property values in one transaction");
+	}
+
+	/**
+	 * Adds the prefix of this {@link Properties} instance to a property path.
+	 *
+	 * @param propertyPath
+	 *            a property path relative to this instance
+	 * @return the property path relative to the root of the property-file
+	 * @throws PropertyException
+	 *             if the resulting path is empty
+	 */
+	private PropertyPath getFullPath(PropertyPath propertyPath)
+			throws PropertyException {
+		PropertyPath fullPropertyPath = mPropertyPathPrefix
+				.append(propertyPath);
+		if (fullPropertyPath.isRoot()) {
+			throw new PropertyException("propertyPath is empty");
+		}
+		return fullPropertyPath;
+	}
+
+	/**
+	 * Checks if a value can be stored by {@link #set(String, Object)}.
+	 *
+	 * @param propertyValue
+	 *            the value to be checked
+	 * @throws PropertyException
+	 *             if the type of the value is not supported
+	 */
+	static void checkValue(Object propertyValue) throws PropertyException {
 		if (!(propertyValue instanceof String)
 				&& !(propertyValue instanceof Integer)
 				&& !(propertyValue instanceof Double)
@@ -552,22 +1590,12 @@ public class Properties {
 			throw new PropertyException(
 					"Only String, int, double, boolean, Map and List are supported.");
 		}
-
-		// add the mPreFixPropertyPath if this Property is a copy with a deeper
-		// level
-		String fullPropertyPath = addPath(mPropertyPathPrefix, propertyPath);
-
-		// add propertyValue with the fullPropertyPath
-		addToRootMap(fullPropertyPath, propertyValue);
-
-		mLogger.debug("Set the property value: " + propertyValue + " on key: "
-				+ fullPropertyPath);
 	}
 
 	@Override
 	public String toString() {
 		try {
-			return load().toString();
+			return loadShared().toString();
 		} catch (PropertyException e) {
 			return e.toString();
 		}
@@ -0,0 +1,325 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the asynchronous operations of one property-file on an
+ * {@link Executor}. Writes are applied one batch at a time in the order they
+ * were requested: all {@link Properties#setAsync(PropertyPath, Object)} calls
+ * queued while a batch is running are stored with a single write, and a
+ * queued {@link Properties#saveAsync(Map)} replaces every save and set queued
+ * before it, since the file would be overwritten anyway. A load runs after
+ * all writes requested before it.
+ */
+final class PropertiesAsync {
+
+	private static final int DEFAULT_THREADS = 2;
+
+	private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	private final Properties mProperties;
+
+	private volatile Executor mExecutor;
+
+	private final Object mLock = new Object();
+
+	private Map<String, Object> mPendingSave;
+
+	private List<CompletableFuture<Void>> mSaveFutures = new ArrayList<CompletableFuture<Void>>();
+
+	private List<Map.Entry<PropertyPath, Object>> mPendingChanges = new ArrayList<Map.Entry<PropertyPath, Object>>();
+
+	private List<CompletableFuture<Void>> mChangeFutures = new ArrayList<CompletableFuture<Void>>();
+
+	private boolean mScheduled;
+
+	private CompletableFuture<Void> mLastWrite = CompletableFuture
+			.completedFuture(null);
+
+	/**
+	 * The executor used when none is set. It is only created when it is used
+	 * for the first time.
+	 */
+	private static final class DefaultExecutor {
+
+		private static final ThreadPoolExecutor INSTANCE = newDefaultExecutor();
+
+		private static ThreadPoolExecutor newDefaultExecutor() {
+			final AtomicInteger count = new AtomicInteger();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					DEFAULT_THREADS, DEFAULT_THREADS, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(DEFAULT_QUEUE_CAPACITY),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r,
+									"ironcommon-properties-io-"
+											+ count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
+		}
+	}
+
+	/**
+	 * @param properties
+	 *            the root {@link Properties} of the property-file
+	 */
+	PropertiesAsync(Properties properties) {
+		mProperties = properties;
+	}
+
+	/**
+	 * @param executor
+	 *            the {@link Executor} the operations run on, null for the
+	 *            default one
+	 */
+	void setExecutor(Executor executor) {
+		mExecutor = executor;
+	}
+
+	/**
+	 * @return the {@link Executor} the operations run on
+	 */
+	Executor getExecutor() {
+		Executor executor = mExecutor;
+		return executor != null ? executor : DefaultExecutor.INSTANCE;
+	}
+
+	/**
+	 * Loads the property-file after all writes requested before.
+	 *
+	 * @return a future that completes with the loaded {@link Map}
+	 */
+	CompletableFuture<Map<String, Object>> load() {
+		final CompletableFuture<Map<String, Object>> result = new CompletableFuture<Map<String, Object>>();
+		CompletableFuture<Void> lastWrite;
+		synchronized (mLock) {
+			lastWrite = mLastWrite;
+		}
+		// the outcome of the writes does not matter, only that they are done
+		lastWrite.whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void ignored, Throwable error) {
+				execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							result.complete(mProperties.load());
+						} catch (PropertyException | RuntimeException e) {
+							result.completeExceptionally(e);
+						}
+					}
+				}, result);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Queues a save of the whole property-file.
+	 *
+	 * @param data
+	 *            the content of the file, owned by this instance from now on
+	 * @return a future that completes when the file is written
+	 */
+	CompletableFuture<Void> save(Map<String, Object> data) {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		boolean schedule;
+		synchronized (mLock) {
+			// the save overwrites everything queued before
+			mPendingSave = data;
+			mSaveFutures.add(future);
+			mSaveFutures.addAll(mChangeFutures);
+			mPendingChanges.clear();
+			mChangeFutures.clear();
+			mLastWrite = future;
+			schedule = schedule();
+		}
+		if (schedule) {
+			executeBatch();
+		}
+		return future;
+	}
+
+	/**
+	 * Queues a change of a single value.
+	 *
+	 * @param change
+	 *            the full property path and the value, owned by this instance
+	 *            from now on
+	 * @return a future that completes when the value is written
+	 */
+	CompletableFuture<Void> set(Map.Entry<PropertyPath, Object> change) {
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		boolean schedule;
+		synchronized (mLock) {
+			mPendingChanges.add(change);
+			mChangeFutures.add(future);
+			mLastWrite = future;
+			schedule = schedule();
+		}
+		if (schedule) {
+			executeBatch();
+		}
+		return future;
+	}
+
+	/**
+	 * Must be called while holding {@link #mLock}.
+	 *
+	 * @return true if a batch has to be submitted to the executor
+	 */
+	private boolean schedule() {
+		if (mScheduled) {
+			return false;
+		}
+		mScheduled = true;
+		return true;
+	}
+
+	private void executeBatch() {
+		try {
+			getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					runBatch();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+			synchronized (mLock) {
+				futures.addAll(mSaveFutures);
+				futures.addAll(mChangeFutures);
+				mPendingSave = null;
+				mSaveFutures.clear();
+				mPendingChanges.clear();
+				mChangeFutures.clear();
+				mScheduled = false;
+			}
+			complete(futures, e);
+		}
+	}
+
+	/**
+	 * Writes everything queued so far and submits the next batch if more was
+	 * queued in the meantime.
+	 */
+	private void runBatch() {
+		Map<String, Object> save;
+		List<CompletableFuture<Void>> saveFutures;
+		List<Map.Entry<PropertyPath, Object>> changes;
+		List<CompletableFuture<Void>> changeFutures;
+		synchronized (mLock) {
+			save = mPendingSave;
+			saveFutures = mSaveFutures;
+			changes = mPendingChanges;
+			changeFutures = mChangeFutures;
+			mPendingSave = null;
+			mSaveFutures = new ArrayList<CompletableFuture<Void>>();
+			mPendingChanges = new ArrayList<Map.Entry<PropertyPath, Object>>();
+			mChangeFutures = new ArrayList<CompletableFuture<Void>>();
+		}
+
+		if (save != null) {
+			Throwable error = null;
+			try {
+				mProperties.save(save);
+			} catch (PropertyException | RuntimeException e) {
+				error = e;
+			}
+			complete(saveFutures, error);
+		}
+		if (!changes.isEmpty()) {
+			Throwable error = null;
+			try {
+				mProperties.addToRootMap(changes);
+			} catch (PropertyException | RuntimeException e) {
+				error = e;
+			}
+			complete(changeFutures, error);
+		}
+
+		boolean more;
+		synchronized (mLock) {
+			more = mPendingSave != null || !mPendingChanges.isEmpty();
+			mScheduled = more;
+		}
+		// submit again instead of looping, so a busy file does not occupy a
+		// thread of the executor
+		if (more) {
+			executeBatch();
+		}
+	}
+
+	private void execute(Runnable task, CompletableFuture<?> future) {
+		try {
+			getExecutor().execute(task);
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	private static void complete(List<CompletableFuture<Void>> futures,
+			Throwable error) {
+		for (CompletableFuture<Void> future : futures) {
+			if (error == null) {
+				future.complete(null);
+			} else {
+				future.completeExceptionally(error);
+			}
+		}
+	}
+}
@@ -0,0 +1,328 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.beans.Introspector;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Binds property subtrees to instances of plain Java classes for
+ * {@link Properties#bind(PropertyPath, Class)}.
+ *
+ * A class needs a constructor without parameters. Every key of the subtree is
+ * stored through the public setter of the same name (key "port" through
+ * setPort), otherwise through the non-static, non-final field of the same
+ * name. If there are several setters of a name, the one taking the type of
+ * the field of the name, or of the name with the prefix "m", is used; a key
+ * with several other setters can not be bound. Keys without setter or field
+ * are ignored. Values are converted to
+ * the type of the setter or field: Strings, numbers, booleans and enums are
+ * converted like the typed getters of {@link Properties} do, nested
+ * {@link Map}s are bound to the type recursively, {@link List}s and
+ * {@link Map}s are copied.
+ *
+ * The setters and fields of a class are looked up only once, they are kept as
+ * {@link MethodHandle}s.
+ */
+final class PropertiesBinder {
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType
+			.methodType(Object.class);
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(
+			void.class, Object.class, Object.class);
+
+	private static final ConcurrentMap<Class<?>, Binding> BINDINGS = new ConcurrentHashMap<Class<?>, Binding>();
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private PropertiesBinder() {
+	}
+
+	/**
+	 * Creates an instance of a class and stores the values of a property
+	 * subtree in it.
+	 *
+	 * @param values
+	 *            the property subtree, it is not modified
+	 * @param type
+	 *            the class to be instantiated
+	 * @param converter
+	 *            converts values to int and double
+	 * @param <T>
+	 *            the type of the instance
+	 * @return the new instance
+	 * @throws PropertyException
+	 *             if the class can not be instantiated or a value can not be
+	 *             converted or stored
+	 */
+	static <T> T bind(Map<?, ?> values, Class<T> type, ValueConverter converter)
+			throws PropertyException {
+		Binding binding = getBinding(type);
+		Object target;
+		try {
+			target = binding.mConstructor.invokeExact();
+		} catch (Throwable t) {
+			throw failure("Could not create " + type.getName(), t);
+		}
+
+		for (Map.Entry<?, ?> e : values.entrySet()) {
+			if (binding.mAmbiguous.contains(e.getKey())) {
+				throw new PropertyException("Could not set " + e.getKey()
+						+ " of " + type.getName()
+						+ ": there are several setters");
+			}
+			MethodHandle setter = binding.mSetters.get(e.getKey());
+			if (setter == null) {
+				continue;
+			}
+			Class<?> valueType = binding.mTypes.get(e.getKey());
+			Object value;
+			try {
+				value = convert(e.getValue(), valueType, converter);
+			} catch (RuntimeException ex) {
+				throw failure("Could not convert " + e.getKey() + " of "
+						+ type.getName(), ex);
+			}
+			if (value == null && valueType.isPrimitive()) {
+				continue;
+			}
+			try {
+				setter.invokeExact(target, value);
+			} catch (Throwable t) {
+				throw failure("Could not set " + e.getKey() + " of "
+						+ type.getName(), t);
+			}
+		}
+		return type.cast(target);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object convert(Object value, Class<?> type,
+			ValueConverter converter) throws PropertyException {
+		if (value == null) {
+			return null;
+		} else if (type == String.class) {
+			return value.toString();
+		} else if (type == int.class || type == Integer.class) {
+			return converter.toInt(value);
+		} else if (type == long.class || type == Long.class) {
+			if (value instanceof Integer || value instanceof Long) {
+				return ((Number) value).longValue();
+			}
+			return Long.parseLong(value.toString());
+		} else if (type == double.class || type == Double.class) {
+			return converter.toDouble(value);
+		} else if (type == float.class || type == Float.class) {
+			return (float) converter.toDouble(value);
+		} else if (type == boolean.class || type == Boolean.class) {
+			return ValueConverter.toBoolean(value);
+		} else if (type.isEnum()) {
+			return Enum.valueOf((Class<? extends Enum>) type, value.toString());
+		} else if (type.isInstance(value)) {
+			// the subtree belongs to the properties, the instance must not
+			// share maps or lists with it
+			return PropertiesReader.copyOfValue(value);
+		} else if (value instanceof Map) {
+			return bind((Map<?, ?>) value, type, converter);
+		}
+		throw new IllegalArgumentException(value.getClass().getName()
+				+ " is not a " + type.getName());
+	}
+
+	private static Binding getBinding(Class<?> type) throws PropertyException {
+		Binding binding = BINDINGS.get(type);
+		if (binding == null) {
+			binding = new Binding(type);
+			BINDINGS.put(type, binding);
+		}
+		return binding;
+	}
+
+	private static PropertyException failure(String message, Throwable cause) {
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new PropertyException(message + ": " + cause);
+	}
+
+	/**
+	 * The constructor and the setters of a class.
+	 */
+	private static final class Binding {
+
+		private final MethodHandle mConstructor;
+
+		private final Map<String, MethodHandle> mSetters = new HashMap<String, MethodHandle>();
+
+		/**
+		 * The types the values are converted to, the setters take them as
+		 * {@link Object}.
+		 */
+		private final Map<String, Class<?>> mTypes = new HashMap<String, Class<?>>();
+
+		/**
+		 * The keys with several setters none of which could be chosen.
+		 */
+		private final Set<String> mAmbiguous = new HashSet<String>();
+
+		private Binding(Class<?> type) throws PropertyException {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			try {
+				Constructor<?> constructor = type.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				mConstructor = lookup.unreflectConstructor(constructor).asType(
+						CONSTRUCTOR_TYPE);
+
+				// the order of the methods is unspecified, so all setters
+				// of a name are collected before one is chosen
+				Map<String, List<Method>> setters = new HashMap<String, List<Method>>();
+				for (Method m : type.getMethods()) {
+					String name = m.getName();
+					if (name.length() > 3 && name.startsWith("set")
+							&& m.getParameterTypes().length == 1
+							&& !Modifier.isStatic(m.getModifiers())) {
+						String key = Introspector.decapitalize(name
+								.substring(3));
+						List<Method> methods = setters.get(key);
+						if (methods == null) {
+							methods = new ArrayList<Method>(1);
+							setters.put(key, methods);
+						}
+						methods.add(m);
+					}
+				}
+				for (Map.Entry<String, List<Method>> e : setters.entrySet()) {
+					Method m = choose(type, e.getKey(), e.getValue());
+					if (m == null) {
+						mAmbiguous.add(e.getKey());
+						continue;
+					}
+					// public setters of a class that is not public
+					m.setAccessible(true);
+					add(e.getKey(), lookup.unreflect(m),
+							m.getParameterTypes()[0]);
+				}
+
+				for (Class<?> c = type; c != null && c != Object.class; c = c
+						.getSuperclass()) {
+					for (Field f : c.getDeclaredFields()) {
+						int modifiers = f.getModifiers();
+						if (Modifier.isStatic(modifiers)
+								|| Modifier.isFinal(modifiers)
+								|| Modifier.isTransient(modifiers)
+								|| f.isSynthetic()
+								|| mSetters.containsKey(f.getName())
+								|| mAmbiguous.contains(f.getName())) {
+							continue;
+						}
+						f.setAccessible(true);
+						add(f.getName(), lookup.unreflectSetter(f), f.getType());
+					}
+				}
+			} catch (NoSuchMethodException e) {
+				throw new PropertyException(type.getName()
+						+ " has no constructor without parameters");
+			} catch (IllegalAccessException | SecurityException e) {
+				throw new PropertyException("Could not access "
+						+ type.getName() + ": " + e);
+			}
+		}
+
+		/**
+		 * @return the only setter, the setter taking the type of the field of
+		 *         the key or null, if there is none of them
+		 */
+		private static Method choose(Class<?> type, String key,
+				List<Method> setters) {
+			if (setters.size() > 1) {
+				// a bridge of a generic setter stands for the setter
+				List<Method> declared = new ArrayList<Method>(setters.size());
+				for (Method m : setters) {
+					if (!m.isBridge()) {
+						declared.add(m);
+					}
+				}
+				if (!declared.isEmpty()) {
+					setters = declared;
+				}
+			}
+			if (setters.size() == 1) {
+				return setters.get(0);
+			}
+			String prefixed = "m" + Character.toUpperCase(key.charAt(0))
+					+ key.substring(1);
+			for (Class<?> c = type; c != null && c != Object.class; c = c
+					.getSuperclass()) {
+				for (Field f : c.getDeclaredFields()) {
+					if (!f.getName().equals(key)
+							&& !f.getName().equals(prefixed)) {
+						continue;
+					}
+					for (Method m : setters) {
+						if (m.getParameterTypes()[0] == f.getType()) {
+							return m;
+						}
+					}
+				}
+			}
+			return null;
+		}
+
+		private void add(String key, MethodHandle setter, Class<?> type) {
+			mSetters.put(key, setter.asType(SETTER_TYPE));
+			mTypes.put(key, type);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The differences between two contents of a property subtree: the property
+ * paths that were added, removed and changed.
+ *
+ * Nested {@link Map}s are compared key by key, so a path points to the
+ * deepest value that differs; a subtree that was added or removed as a whole
+ * is reported with the path of its root. All other values, including
+ * {@link List}s, are compared with {@link Object#equals(Object)}. Subtrees
+ * that are identical objects in both contents, as unchanged subtrees of
+ * cached properties are, are skipped without comparing them.
+ */
+public final class PropertiesDiff {
+
+	private final List<PropertyChange> mAdded = new ArrayList<PropertyChange>();
+
+	private final List<PropertyChange> mRemoved = new ArrayList<PropertyChange>();
+
+	private final List<PropertyChange> mChanged = new ArrayList<PropertyChange>();
+
+	private PropertiesDiff() {
+	}
+
+	/**
+	 * Computes the differences between two contents.
+	 *
+	 * @param oldValue
+	 *            the old content, null if there was none
+	 * @param newValue
+	 *            the new content, null if there is none
+	 * @return the differences, property paths are relative to the contents
+	 */
+	static PropertiesDiff compute(Object oldValue, Object newValue) {
+		PropertiesDiff diff = new PropertiesDiff();
+		diff.compare(new String[0], oldValue, newValue);
+		return diff;
+	}
+
+	/**
+	 * Returns the subtree at a property path. Unlike a lookup, a path leading
+	 * through a value that is not a {@link Map} has no subtree.
+	 *
+	 * @param properties
+	 *            the root {@link Map}, may be null
+	 * @param propertyPath
+	 *            the property path of the subtree
+	 * @return the subtree or null
+	 */
+	static Object subtree(Map<String, Object> properties,
+			PropertyPath propertyPath) {
+		Object value = properties;
+		for (String key : propertyPath.getKeys()) {
+			if (!(value instanceof Map)) {
+				return null;
+			}
+			value = ((Map<?, ?>) value).get(key);
+		}
+		return value;
+	}
+
+	private void compare(String[] keys, Object oldValue, Object newValue) {
+		if (oldValue == newValue) {
+			// identical subtrees are not compared
+			return;
+		} else if (oldValue instanceof Map && newValue instanceof Map) {
+			Map<?, ?> oldMap = (Map<?, ?>) oldValue;
+			Map<?, ?> newMap = (Map<?, ?>) newValue;
+			for (Map.Entry<?, ?> e : newMap.entrySet()) {
+				// a property path can not lead to a key that is no string
+				if (e.getKey() instanceof String) {
+					compare(append(keys, (String) e.getKey()),
+							oldMap.get(e.getKey()), e.getValue());
+				}
+			}
+			for (Map.Entry<?, ?> e : oldMap.entrySet()) {
+				if (e.getKey() instanceof String && e.getValue() != null
+						&& newMap.get(e.getKey()) == null) {
+					mRemoved.add(new PropertyChange(new PropertyPath(append(
+							keys, (String) e.getKey())), e.getValue(), null));
+				}
+			}
+		} else if (oldValue == null) {
+			mAdded.add(new PropertyChange(new PropertyPath(keys), null,
+					newValue));
+		} else if (newValue == null) {
+			// removed entries of a map are reported above
+			if (keys.length == 0) {
+				mRemoved.add(new PropertyChange(PropertyPath.ROOT, oldValue,
+						null));
+			}
+		} else if (!oldValue.equals(newValue)) {
+			mChanged.add(new PropertyChange(new PropertyPath(keys), oldValue,
+					newValue));
+		}
+	}
+
+	private static String[] append(String[] keys, String key) {
+		String[] result = Arrays.copyOf(keys, keys.length + 1);
+		result[keys.length] = key;
+		return result;
+	}
+
+	/**
+	 * @return true, if nothing changed
+	 */
+	public boolean isEmpty() {
+		return mAdded.isEmpty() && mRemoved.isEmpty() && mChanged.isEmpty();
+	}
+
+	/**
+	 * @return the values that were added, their old value is null
+	 */
+	public List<PropertyChange> getAdded() {
+		return Collections.unmodifiableList(mAdded);
+	}
+
+	/**
+	 * @return the values that were removed, their new value is null
+	 */
+	public List<PropertyChange> getRemoved() {
+		return Collections.unmodifiableList(mRemoved);
+	}
+
+	/**
+	 * @return the values that were replaced by a different value
+	 */
+	public List<PropertyChange> getChanged() {
+		return Collections.unmodifiableList(mChanged);
+	}
+
+	@Override
+	public String toString() {
+		return "added=" + mAdded + ", removed=" + mRemoved + ", changed="
+				+ mChanged;
+	}
+}
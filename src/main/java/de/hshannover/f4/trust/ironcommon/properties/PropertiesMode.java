@@ -0,0 +1,74 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+/**
+ * The ways a {@link PropertiesReader} can access the property-file.
+ */
+public enum PropertiesMode {
+
+	/**
+	 * Every access parses the whole property-file again.
+	 */
+	RELOAD,
+
+	/**
+	 * The parsed content of the property-file is kept in memory and the file
+	 * is only parsed again when its modification time or size changes.
+	 */
+	CACHED,
+
+	/**
+	 * Every access reads the property-file again, but a single value is
+	 * resolved while parsing: subtrees that are not on the way to the value
+	 * are skipped and only the value itself is constructed. Suited for large
+	 * files of which only a few values are read.
+	 */
+	STREAMING,
+
+	/**
+	 * Like {@link #CACHED}, but the content is kept outside of the Java heap in
+	 * a compact encoding, see
+	 * {@link de.hshannover.f4.trust.ironcommon.yaml.YamlBuffer}. Reading a
+	 * value decodes only this value, so the heap does not grow with the size
+	 * of the file. Reading the whole content decodes all of it. Suited for very
+	 * large files.
+	 */
+	OFF_HEAP
+}
@@ -38,20 +38,72 @@
  */
 package de.hshannover.f4.trust.ironcommon.properties;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
+import org.apache.log4j.Logger;
+
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlBuffer;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlInterner;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlJournal;
 import de.hshannover.f4.trust.ironcommon.yaml.YamlReader;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlSnapshot;
 
 /**
  * Class that encapsulates reading of property-files.
  *
+ * A {@link PropertiesReader} can work in a cached mode. In this mode the
+ * parsed content of the file is kept in memory and the file is only parsed
+ * again when its modification time or size changes. In streaming mode single
+ * values are resolved while parsing, without loading the whole file; see
+ * {@link PropertiesMode}. The off-heap mode caches the content like the cached
+ * mode, but outside of the Java heap in a {@link YamlBuffer}. Independent of
+ * the mode, the file can be read through a compiled snapshot, see
+ * {@link YamlSnapshot}. Changes in the journal of the file that are not
+ * compacted yet are always applied, see {@link YamlJournal}. Loaded content
+ * can be canonicalized, see {@link YamlInterner}.
+ *
  * @author Marcel Reichenbach
  */
 public class PropertiesReader {
 
+	private static Logger mLogger = Logger.getLogger(PropertiesReader.class);
+
 	private String mFileName;
 
+	private PropertiesMode mMode;
+
+	private boolean mCached;
+
+	private volatile boolean mSnapshot;
+
+	private volatile boolean mJournal;
+
+	private volatile boolean mInterning;
+
+	private final File mJournalFile;
+
+	private ReadWriteLock mLock;
+
+	private volatile CachedProperties mCache;
+
+	private ValueConverter mConverter = new ValueConverter();
+
+	private FileMetrics mMetrics;
+
 	/**
 	 * Create a {@link PropertiesReader} with a given filename.
 	 *
@@ -59,11 +111,111 @@ public class PropertiesReader {
 	 *            The file name of the properties-file.
 	 */
 	public PropertiesReader(String fileName) {
+		this(fileName, PropertiesMode.RELOAD);
+	}
+
+	/**
+	 * Create a {@link PropertiesReader} with a given filename.
+	 *
+	 * @param fileName
+	 *            The file name of the properties-file.
+	 * @param cached
+	 *            if true, the parsed content of the file is kept in memory and
+	 *            only reloaded when the file changes
+	 */
+	public PropertiesReader(String fileName, boolean cached) {
+		this(fileName, cached ? PropertiesMode.CACHED : PropertiesMode.RELOAD);
+	}
+
+	/**
+	 * Create a {@link PropertiesReader} with a given filename.
+	 *
+	 * @param fileName
+	 *            The file name of the properties-file.
+	 * @param mode
+	 *            the way the properties-file is accessed
+	 */
+	public PropertiesReader(String fileName, PropertiesMode mode) {
+		ObjectChecks.checkForNullReference(mode, "mode is null");
 		mFileName = fileName;
+		mMode = mode;
+		mCached = mode == PropertiesMode.CACHED
+				|| mode == PropertiesMode.OFF_HEAP;
+		mLock = FileLocks.getLock(fileName);
+		mMetrics = FileMetrics.getMetrics(fileName);
+		mJournalFile = YamlJournal.getJournalPath(fileName).toFile();
+	}
+
+	/**
+	 * @return the way the properties-file is accessed
+	 */
+	public PropertiesMode getMode() {
+		return mMode;
+	}
+
+	/**
+	 * @param snapshot
+	 *            if true, the properties-file is read through a compiled
+	 *            snapshot stored beside it, see {@link YamlSnapshot}
+	 */
+	public void setSnapshotEnabled(boolean snapshot) {
+		mSnapshot = snapshot;
+	}
+
+	/**
+	 * @return true, if the properties-file is read through a compiled snapshot
+	 */
+	public boolean isSnapshotEnabled() {
+		return mSnapshot;
+	}
+
+	/**
+	 * @param journal
+	 *            if true, changes are appended to the journal of the
+	 *            properties-file and the cached content is also reloaded when
+	 *            the journal changes, see {@link YamlJournal}
+	 */
+	public void setJournalEnabled(boolean journal) {
+		mJournal = journal;
+	}
+
+	/**
+	 * @return true, if changes are appended to the journal of the
+	 *         properties-file
+	 */
+	public boolean isJournalEnabled() {
+		return mJournal;
+	}
+
+	/**
+	 * @param interning
+	 *            if true, loaded content is canonicalized by the process-wide
+	 *            {@link YamlInterner}. In cached and off-heap mode equal
+	 *            subtrees are shared as well, otherwise only keys and scalar
+	 *            values.
+	 */
+	public void setInterningEnabled(boolean interning) {
+		mInterning = interning;
+	}
+
+	/**
+	 * @return true, if loaded content is canonicalized
+	 */
+	public boolean isInterningEnabled() {
+		return mInterning;
 	}
 
 	/**
-	 * Load the properties from the file as a {@link Map}.
+	 * @return true, if this {@link PropertiesReader} works in cached or
+	 *         off-heap mode
+	 */
+	public boolean isCached() {
+		return mCached;
+	}
+
+	/**
+	 * Load the properties from the file as a {@link Map}. The returned
+	 * {@link Map} belongs to the caller and may be modified.
 	 *
 	 * @return A {@link Map} with property keys and values, where values can be
 	 *         deeper nested {@link Map}s.
@@ -72,6 +224,623 @@ public class PropertiesReader {
 	 *             exist) or the given filename is a directory.
 	 */
 	public Map<String, Object> load() throws IOException {
-		return YamlReader.loadMap(mFileName);
+		if (!mCached) {
+			return loadMap();
+		}
+		return copyOf(loadShared());
+	}
+
+	/**
+	 * Load the properties for read-only access. In cached mode the cached
+	 * {@link Map} is returned without copying it, so it must not be modified.
+	 * In off-heap mode the whole content is decoded on every call.
+	 *
+	 * @return A {@link Map} with property keys and values, where values can be
+	 *         deeper nested {@link Map}s.
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	Map<String, Object> loadShared() throws IOException {
+		if (!mCached) {
+			return loadMap();
+		}
+		return loadCache().getProperties();
+	}
+
+	/**
+	 * @return the up to date content of the file in cached mode
+	 */
+	private CachedProperties loadCache() throws IOException {
+		// take the stamp before parsing, so a change during the parse is
+		// detected on the next access
+		File f = new File(mFileName);
+		long lastModified = f.lastModified();
+		long length = f.length();
+		long journalModified = 0;
+		long journalLength = 0;
+		if (mJournal) {
+			journalModified = mJournalFile.lastModified();
+			journalLength = mJournalFile.length();
+		}
+
+		CachedProperties cache = mCache;
+		if (cache != null
+				&& cache.isUpToDate(lastModified, length, journalModified,
+						journalLength)) {
+			mMetrics.recordCacheAccess(true);
+			return cache;
+		}
+
+		// the file lock is always acquired before the monitor, a thread
+		// holding the write lock of the file may reload as well
+		Lock lock = FileLocks.lockForReading(mFileName, mMetrics);
+		try {
+			synchronized (this) {
+				cache = mCache;
+				boolean hit = cache != null
+						&& cache.isUpToDate(lastModified, length,
+								journalModified, journalLength);
+				if (!hit) {
+					cache = newCache(loadMap(), lastModified, length,
+							journalModified, journalLength);
+					mCache = cache;
+				}
+				mMetrics.recordCacheAccess(hit);
+				return cache;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Load a single value of the properties. In streaming mode only the value
+	 * is constructed while the file is parsed. In cached mode it is looked up
+	 * with a single probe of an index of all property paths, in off-heap mode
+	 * only the value is decoded from the {@link YamlBuffer}, otherwise it is
+	 * looked up in the {@link Map} from {@link #loadShared()}. Except in
+	 * streaming and off-heap mode the value must not be modified.
+	 *
+	 * @param propertyPath
+	 *            the path from the root {@link Map} to the value
+	 * @return the value or null, if the keys do not point to a value. If a
+	 *         key points to a value that is not a {@link Map}, this value is
+	 *         returned.
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	Object loadValue(PropertyPath propertyPath) throws IOException {
+		if (mMode == PropertiesMode.STREAMING
+				&& !YamlJournal.exists(mFileName)) {
+			String[] keys = propertyPath.getKeys();
+			return mSnapshot ? YamlSnapshot.loadValue(mFileName, keys)
+					: YamlReader.loadValue(mFileName, keys);
+		} else if (mCached) {
+			return loadCache().get(propertyPath);
+		}
+		return walk(loadMap(), propertyPath);
+	}
+
+	/**
+	 * Load the values of several property paths from one state of the file.
+	 * In cached and off-heap mode each value is looked up in the same cached
+	 * content, otherwise the file is parsed once and all paths are resolved
+	 * in a single walk over the loaded {@link Map}, see
+	 * {@link #walkAll(Map, Collection)}. Except in off-heap mode the values
+	 * of a cached content must not be modified.
+	 *
+	 * @param propertyPaths
+	 *            the paths from the root {@link Map} to the values
+	 * @return the values of the property paths that exist
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	Map<PropertyPath, Object> loadValues(
+			Collection<PropertyPath> propertyPaths) throws IOException {
+		if (!mCached) {
+			return walkAll(loadMap(), propertyPaths);
+		}
+		CachedProperties cache = loadCache();
+		Map<PropertyPath, Object> values = new HashMap<PropertyPath, Object>();
+		for (PropertyPath propertyPath : propertyPaths) {
+			Object value = cache.get(propertyPath);
+			if (value != null) {
+				values.put(propertyPath, value);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Binds a property subtree to a new instance of a class, see
+	 * {@link PropertiesBinder}. In cached mode the instance is kept with the
+	 * cached content and returned again until the file changes, so it must
+	 * not be modified.
+	 *
+	 * @param propertyPath
+	 *            the path from the root {@link Map} to the subtree
+	 * @param type
+	 *            the class to be instantiated
+	 * @param <T>
+	 *            the type of the instance
+	 * @return the instance holding the values of the subtree
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 * @throws PropertyException
+	 *             if the subtree does not exist or can not be bound
+	 */
+	<T> T bind(PropertyPath propertyPath, Class<T> type) throws IOException,
+			PropertyException {
+		if (!mCached) {
+			return bind(loadValue(propertyPath), propertyPath, type);
+		}
+
+		CachedProperties cache = loadCache();
+		BindingKey key = new BindingKey(propertyPath, type);
+		Object bound = cache.mBound.get(key);
+		if (bound == null) {
+			// threads racing here bind equal instances, one of them is kept
+			bound = bind(cache.get(propertyPath), propertyPath, type);
+			Object other = cache.mBound.putIfAbsent(key, bound);
+			if (other != null) {
+				bound = other;
+			}
+		}
+		return type.cast(bound);
+	}
+
+	private <T> T bind(Object value, PropertyPath propertyPath, Class<T> type)
+			throws PropertyException {
+		if (!(value instanceof Map)) {
+			throw new PropertyException("property path[" + propertyPath
+					+ "] is not a property subtree!");
+		}
+		return PropertiesBinder.bind((Map<?, ?>) value, type, mConverter);
+	}
+
+	/**
+	 * Walks the keys of a property path through the nested {@link Map}s.
+	 * Like {@link Properties} always did, a value that is not a {@link Map}
+	 * is returned even if there are more keys.
+	 *
+	 * @param properties
+	 *            the root {@link Map}
+	 * @param propertyPath
+	 *            the path from the root {@link Map} to the value
+	 * @return the value or null, if the path does not exist
+	 */
+	@SuppressWarnings("unchecked")
+	static Object walk(Map<String, Object> properties,
+			PropertyPath propertyPath) {
+		Object value = properties;
+		for (String key : propertyPath.getKeys()) {
+			if (!(value instanceof Map)) {
+				break;
+			}
+			value = ((Map<String, Object>) value).get(key);
+		}
+		return value;
+	}
+
+	/**
+	 * Resolves several property paths in a single walk: the paths are merged
+	 * into a tree of their keys, so a common prefix is walked only once.
+	 * Every path is resolved like {@link #walk(Map, PropertyPath)} does.
+	 *
+	 * @param properties
+	 *            the root {@link Map}
+	 * @param propertyPaths
+	 *            the paths from the root {@link Map} to the values
+	 * @return the values of the property paths that exist
+	 */
+	static Map<PropertyPath, Object> walkAll(Map<String, Object> properties,
+			Collection<PropertyPath> propertyPaths) {
+		PathNode root = new PathNode();
+		for (PropertyPath propertyPath : propertyPaths) {
+			root.add(propertyPath);
+		}
+		Map<PropertyPath, Object> values = new HashMap<PropertyPath, Object>();
+		root.collect(properties, values);
+		return values;
+	}
+
+	private Map<String, Object> loadMap() throws IOException {
+		// the journal must belong to the loaded content
+		Lock lock = FileLocks.lockForReading(mFileName, mMetrics);
+		try {
+			Map<String, Object> properties = mSnapshot ? YamlSnapshot
+					.loadMap(mFileName) : YamlReader.loadMap(mFileName);
+			YamlJournal.replay(mFileName, properties);
+			if (mInterning) {
+				// the cached tree is never modified, so it can share subtrees
+				properties = YamlInterner.getDefault().intern(properties,
+						mCached);
+			}
+			return properties;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the {@link ValueConverter} shared by all {@link Properties}
+	 *         instances reading through this {@link PropertiesReader}
+	 */
+	ValueConverter getConverter() {
+		return mConverter;
+	}
+
+	/**
+	 * @return the {@link FileMetrics} of the property-file
+	 */
+	FileMetrics getMetrics() {
+		return mMetrics;
+	}
+
+	/**
+	 * @return the {@link ReadWriteLock} of the property-file, see
+	 *         {@link FileLocks}
+	 */
+	ReadWriteLock getLock() {
+		return mLock;
+	}
+
+	/**
+	 * Replaces the cached content with a {@link Map} that was just written to
+	 * the file, so the next access does not parse the file again. The
+	 * {@link PropertiesReader} takes ownership of the given {@link Map}. If
+	 * the changes were applied to the cached content, its index is carried
+	 * over and only the changed property paths are indexed again.
+	 *
+	 * @param properties
+	 *            the {@link Map} that has been stored in the file
+	 * @param previous
+	 *            the cached {@link Map} the changes were applied to or null
+	 * @param changed
+	 *            the changed property paths, the {@link Map} shares all other
+	 *            subtrees with the previous one
+	 */
+	void update(Map<String, Object> properties, Map<String, Object> previous,
+			Collection<PropertyPath> changed) {
+		if (mCached) {
+			CachedProperties old = mCache;
+			File f = new File(mFileName);
+			long journalModified = 0;
+			long journalLength = 0;
+			if (mJournal) {
+				journalModified = mJournalFile.lastModified();
+				journalLength = mJournalFile.length();
+			}
+			CachedProperties cache = newCache(properties, f.lastModified(),
+					f.length(), journalModified, journalLength);
+			if (cache.mProperties != null && old != null
+					&& old.mProperties == previous && old.mIndex != null) {
+				cache.mIndex = updateIndex(old.mIndex, properties, changed);
+			}
+			mCache = cache;
+		}
+	}
+
+	/**
+	 * Creates the cached content, in off-heap mode the {@link Map} is encoded
+	 * into a {@link YamlBuffer}. A {@link Map} holding values a
+	 * {@link YamlBuffer} can not hold is kept on the heap.
+	 */
+	private CachedProperties newCache(Map<String, Object> properties,
+			long lastModified, long length, long journalModified,
+			long journalLength) {
+		YamlBuffer buffer = null;
+		if (mMode == PropertiesMode.OFF_HEAP) {
+			buffer = YamlBuffer.encode(properties);
+			if (buffer == null) {
+				mLogger.warn("Can not store " + mFileName
+						+ " off-heap, it is cached on the heap");
+			} else {
+				properties = null;
+			}
+		}
+		return new CachedProperties(properties, buffer, lastModified,
+				length, journalModified, journalLength);
+	}
+
+	/**
+	 * @return the index of the cached content or null, if it is not built
+	 */
+	Map<PropertyPath, Object> getIndex() {
+		CachedProperties cache = mCache;
+		return cache != null ? cache.mIndex : null;
+	}
+
+	/**
+	 * Drops the cached content, the next access parses the file again.
+	 */
+	void invalidate() {
+		mCache = null;
+	}
+
+	/**
+	 * Creates a deep copy of a value. Nested {@link Map}s and {@link List}s
+	 * are copied, all other values are returned as they are.
+	 *
+	 * @param value
+	 *            the value to be copied
+	 * @return a copy of the value
+	 */
+	@SuppressWarnings("unchecked")
+	static Object copyOfValue(Object value) {
+		if (value instanceof Map) {
+			return copyOf((Map<String, Object>) value);
+		} else if (value instanceof List) {
+			List<Object> list = (List<Object>) value;
+			List<Object> copy = new ArrayList<Object>(list.size());
+			for (Object o : list) {
+				copy.add(copyOfValue(o));
+			}
+			return copy;
+		}
+		return value;
+	}
+
+	private static Map<String, Object> copyOf(Map<String, Object> map) {
+		Map<String, Object> copy = new HashMap<String, Object>(
+				(int) (map.size() / 0.75f) + 1);
+		for (Map.Entry<String, Object> e : map.entrySet()) {
+			copy.put(e.getKey(), copyOfValue(e.getValue()));
+		}
+		return copy;
+	}
+
+	/**
+	 * Builds an index mapping every property path of a {@link Map} to its
+	 * value. Paths leading through a value that is not a {@link Map} are not
+	 * indexed, they have to be walked with {@link #walk(Map, PropertyPath)}.
+	 *
+	 * @param properties
+	 *            the root {@link Map}
+	 * @return the index, including the {@link PropertyPath#ROOT} path
+	 */
+	static Map<PropertyPath, Object> buildIndex(Map<String, Object> properties) {
+		Map<PropertyPath, Object> index = new HashMap<PropertyPath, Object>();
+		index.put(PropertyPath.ROOT, properties);
+		addToIndex(index, properties, new String[0]);
+		return index;
+	}
+
+	/**
+	 * Derives the index of a changed {@link Map} from the index of the
+	 * {@link Map} it was changed from, see {@link #buildIndex(Map)}. Only the
+	 * changed property paths, the {@link Map}s leading to them and their
+	 * subtrees are indexed again. All other entries stay valid, as the
+	 * changed {@link Map} shares these subtrees.
+	 *
+	 * @param index
+	 *            the index of the previous {@link Map}, it is not modified
+	 * @param properties
+	 *            the changed root {@link Map}
+	 * @param changed
+	 *            the changed property paths
+	 * @return the index of the changed {@link Map}
+	 */
+	@SuppressWarnings("unchecked")
+	static Map<PropertyPath, Object> updateIndex(
+			Map<PropertyPath, Object> index, Map<String, Object> properties,
+			Collection<PropertyPath> changed) {
+		Map<PropertyPath, Object> updated = new HashMap<PropertyPath, Object>(
+				index);
+		// all replaced subtrees are dropped before anything is indexed again,
+		// a later change may replace the subtree of an earlier one
+		for (PropertyPath propertyPath : changed) {
+			Object old = updated.remove(propertyPath);
+			if (old instanceof Map) {
+				removeFromIndex(updated, (Map<String, Object>) old,
+						propertyPath.getKeys());
+			}
+		}
+		updated.put(PropertyPath.ROOT, properties);
+		for (PropertyPath propertyPath : changed) {
+			String[] keys = propertyPath.getKeys();
+			Object value = properties;
+			for (int i = 0; i < keys.length && value instanceof Map; i++) {
+				value = ((Map<String, Object>) value).get(keys[i]);
+				if (value == null) {
+					break;
+				}
+				if (i < keys.length - 1) {
+					updated.put(new PropertyPath(Arrays.copyOf(keys, i + 1)),
+							value);
+				} else {
+					updated.put(propertyPath, value);
+					if (value instanceof Map) {
+						addToIndex(updated, (Map<String, Object>) value, keys);
+					}
+				}
+			}
+		}
+		return updated;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void removeFromIndex(Map<PropertyPath, Object> index,
+			Map<String, Object> map, String[] parentKeys) {
+		for (Map.Entry<String, Object> e : map.entrySet()) {
+			Object key = e.getKey();
+			if (!(key instanceof String)) {
+				continue;
+			}
+			String[] keys = Arrays.copyOf(parentKeys, parentKeys.length + 1);
+			keys[parentKeys.length] = (String) key;
+			index.remove(new PropertyPath(keys));
+			if (e.getValue() instanceof Map) {
+				removeFromIndex(index, (Map<String, Object>) e.getValue(),
+						keys);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addToIndex(Map<PropertyPath, Object> index,
+			Map<String, Object> map, String[] parentKeys) {
+		for (Map.Entry<String, Object> e : map.entrySet()) {
+			Object key = e.getKey();
+			Object value = e.getValue();
+			// a property path can not lead to a key that is no string
+			if (!(key instanceof String) || value == null) {
+				continue;
+			}
+			String[] keys = Arrays.copyOf(parentKeys, parentKeys.length + 1);
+			keys[parentKeys.length] = (String) key;
+			index.put(new PropertyPath(keys), value);
+			if (value instanceof Map) {
+				addToIndex(index, (Map<String, Object>) value, keys);
+			}
+		}
+	}
+
+	/**
+	 * The parsed content of the file together with the modification time and
+	 * the size of the file at the time it was parsed. The content is either a
+	 * {@link Map} or a {@link YamlBuffer}.
+	 */
+	private static final class CachedProperties {
+
+		private final Map<String, Object> mProperties;
+
+		private final YamlBuffer mBuffer;
+
+		private final long mLastModified;
+
+		private final long mLength;
+
+		private final long mJournalModified;
+
+		private final long mJournalLength;
+
+		private volatile Map<PropertyPath, Object> mIndex;
+
+		private final ConcurrentMap<BindingKey, Object> mBound = new ConcurrentHashMap<BindingKey, Object>();
+
+		private CachedProperties(Map<String, Object> properties,
+				YamlBuffer buffer, long lastModified, long length,
+				long journalModified, long journalLength) {
+			mProperties = properties;
+			mBuffer = buffer;
+			mLastModified = lastModified;
+			mLength = length;
+			mJournalModified = journalModified;
+			mJournalLength = journalLength;
+		}
+
+		private boolean isUpToDate(long lastModified, long length,
+				long journalModified, long journalLength) {
+			return mLastModified == lastModified && mLength == length
+					&& mJournalModified == journalModified
+					&& mJournalLength == journalLength;
+		}
+
+		/**
+		 * @return the content, decoded if it is held in a {@link YamlBuffer}
+		 */
+		private Map<String, Object> getProperties() {
+			return mBuffer != null ? mBuffer.toMap() : mProperties;
+		}
+
+		/**
+		 * Looks up a value in the index of all property paths, the index is
+		 * built on the first lookup. Paths leading through a value that is
+		 * not a {@link Map} are not indexed, they are walked. A
+		 * {@link YamlBuffer} is searched without an index.
+		 */
+		private Object get(PropertyPath propertyPath) {
+			if (mBuffer != null) {
+				return mBuffer.get(propertyPath.getKeys());
+			}
+			Map<PropertyPath, Object> index = mIndex;
+			if (index == null) {
+				// threads racing here build equal indexes
+				index = buildIndex(mProperties);
+				mIndex = index;
+			}
+			Object value = index.get(propertyPath);
+			if (value == null) {
+				value = walk(mProperties, propertyPath);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * A key of the tree of property paths built by
+	 * {@link PropertiesReader#walkAll(Map, Collection)}.
+	 */
+	private static final class PathNode {
+
+		private final List<PropertyPath> mPropertyPaths = new ArrayList<PropertyPath>(
+				1);
+
+		private final Map<String, PathNode> mChildren = new HashMap<String, PathNode>();
+
+		private void add(PropertyPath propertyPath) {
+			PathNode node = this;
+			for (String key : propertyPath.getKeys()) {
+				PathNode child = node.mChildren.get(key);
+				if (child == null) {
+					child = new PathNode();
+					node.mChildren.put(key, child);
+				}
+				node = child;
+			}
+			node.mPropertyPaths.add(propertyPath);
+		}
+
+		@SuppressWarnings("unchecked")
+		private void collect(Object value, Map<PropertyPath, Object> values) {
+			if (value == null) {
+				return;
+			}
+			for (PropertyPath propertyPath : mPropertyPaths) {
+				values.put(propertyPath, value);
+			}
+			for (Map.Entry<String, PathNode> e : mChildren.entrySet()) {
+				// like walking: a value that is not a map is the result,
+				// even if there are more keys
+				Object child = value instanceof Map ? ((Map<String, Object>) value)
+						.get(e.getKey()) : value;
+				e.getValue().collect(child, values);
+			}
+		}
+	}
+
+	/**
+	 * Identifies an instance bound by {@link PropertiesReader#bind}.
+	 */
+	private static final class BindingKey {
+
+		private final PropertyPath mPropertyPath;
+
+		private final Class<?> mType;
+
+		private BindingKey(PropertyPath propertyPath, Class<?> type) {
+			mPropertyPath = propertyPath;
+			mType = type;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof BindingKey)) {
+				return false;
+			}
+			BindingKey other = (BindingKey) o;
+			return mType == other.mType
+					&& mPropertyPath.equals(other.mPropertyPath);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * mPropertyPath.hashCode() + mType.hashCode();
+		}
 	}
 }
@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * Process-wide registry of shared {@link Properties} instances, keyed by the
+ * canonical path of the property-file and the {@link PropertiesMode}. All
+ * names of a file share one instance and therefore one cache, one watcher and
+ * one writer, see {@link Properties#getShared(String, PropertiesMode)}.
+ *
+ * The registry holds its instances weakly, an instance no longer used
+ * anywhere is garbage collected and its entry is removed. An instance that is
+ * watching its property-file is held strongly until it stops watching:
+ * otherwise its watcher would keep running without it, and the next caller
+ * would get a new instance that is not watching.
+ */
+final class PropertiesRegistry {
+
+	private static final Map<Key, Entry> ENTRIES = new HashMap<Key, Entry>();
+
+	private static final ReferenceQueue<Properties> QUEUE = new ReferenceQueue<Properties>();
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private PropertiesRegistry() {
+	}
+
+	/**
+	 * Returns the shared {@link Properties} instance for a property-file,
+	 * creating it if there is none.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file
+	 * @param mode
+	 *            the way the property-file is accessed
+	 * @return the {@link Properties} shared by all names of the file
+	 */
+	static synchronized Properties get(String fileName, PropertiesMode mode) {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+		ObjectChecks.checkForNullReference(mode, "mode is null");
+		expunge();
+
+		Key key = new Key(FileLocks.canonicalPath(fileName), mode);
+		Entry entry = ENTRIES.get(key);
+		Properties properties = entry != null ? entry.get() : null;
+		if (properties == null) {
+			properties = new Properties(fileName, mode);
+			ENTRIES.put(key, new Entry(properties, key));
+		}
+		return properties;
+	}
+
+	/**
+	 * Holds the shared instance a {@link PropertiesWatcher} belongs to
+	 * strongly while the watcher is watching. Watchers of other instances are
+	 * ignored.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file
+	 * @param mode
+	 *            the way the property-file is accessed
+	 * @param watcher
+	 *            the {@link PropertiesWatcher} that was started or stopped
+	 */
+	static synchronized void watchingChanged(String fileName,
+			PropertiesMode mode, PropertiesWatcher watcher) {
+		Entry entry = ENTRIES.get(new Key(FileLocks.canonicalPath(fileName),
+				mode));
+		Properties properties = entry != null ? entry.get() : null;
+		if (properties != null && properties.getWatcher() == watcher) {
+			entry.mWatching = watcher.isWatching() ? properties : null;
+		}
+	}
+
+	/**
+	 * @return the number of shared instances that were not garbage collected
+	 *         yet
+	 */
+	static synchronized int size() {
+		expunge();
+		return ENTRIES.size();
+	}
+
+	/**
+	 * Removes the entries of garbage collected instances.
+	 */
+	private static void expunge() {
+		Reference<? extends Properties> ref;
+		while ((ref = QUEUE.poll()) != null) {
+			Entry entry = (Entry) ref;
+			// the key may already belong to a new instance
+			if (ENTRIES.get(entry.mKey) == entry) {
+				ENTRIES.remove(entry.mKey);
+			}
+		}
+	}
+
+	/**
+	 * A weak reference to a shared instance, knowing its key.
+	 */
+	private static final class Entry extends WeakReference<Properties> {
+
+		private final Key mKey;
+
+		/**
+		 * The instance while it is watching, null otherwise.
+		 */
+		private Properties mWatching;
+
+		private Entry(Properties properties, Key key) {
+			super(properties, QUEUE);
+			mKey = key;
+		}
+	}
+
+	/**
+	 * The canonical path of a property-file together with the mode.
+	 */
+	private static final class Key {
+
+		private final String mPath;
+
+		private final PropertiesMode mMode;
+
+		private Key(String path, PropertiesMode mode) {
+			mPath = path;
+			mMode = mode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return mMode == other.mMode && mPath.equals(other.mPath);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * mPath.hashCode() + mMode.hashCode();
+		}
+	}
+}
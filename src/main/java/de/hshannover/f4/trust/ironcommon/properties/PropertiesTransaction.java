@@ -0,0 +1,162 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * Collects many values to be stored by a {@link Properties} instance and
+ * stores all of them with a single read and a single write of the
+ * property-file. A {@link PropertiesTransaction} is not thread-safe and can
+ * only be committed once.
+ *
+ * <pre>
+ * PropertiesTransaction transaction = properties.beginTransaction();
+ * transaction.set(&quot;foo.bar&quot;, 42);
+ * transaction.set(&quot;foo.baz&quot;, &quot;value&quot;);
+ * transaction.commit();
+ * </pre>
+ *
+ * @see Properties#beginTransaction()
+ */
+public final class PropertiesTransaction {
+
+	private final Properties mProperties;
+
+	private final List<Map.Entry<PropertyPath, Object>> mChanges = new ArrayList<Map.Entry<PropertyPath, Object>>();
+
+	private boolean mFinished;
+
+	/**
+	 * Create a {@link PropertiesTransaction} for a {@link Properties}
+	 * instance.
+	 *
+	 * @param properties
+	 *            the {@link Properties} instance the values are stored by
+	 */
+	PropertiesTransaction(Properties properties) {
+		mProperties = properties;
+	}
+
+	/**
+	 * Adds a value to the transaction, see
+	 * {@link Properties#set(String, Object)}.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param propertyValue
+	 *            only {@link String}, {@link Integer}, {@link Double},
+	 *            {@link Boolean}, {@link Map} and {@link List} are supported
+	 * @throws PropertyException
+	 *             if the type of the value is not supported
+	 */
+	public void set(String propertyPath, Object propertyValue)
+			throws PropertyException {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		set(PropertyPath.of(propertyPath), propertyValue);
+	}
+
+	/**
+	 * Adds a value to the transaction, see
+	 * {@link Properties#set(PropertyPath, Object)}.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param propertyValue
+	 *            only {@link String}, {@link Integer}, {@link Double},
+	 *            {@link Boolean}, {@link Map} and {@link List} are supported
+	 * @throws PropertyException
+	 *             if the type of the value is not supported
+	 */
+	public void set(PropertyPath propertyPath, Object propertyValue)
+			throws PropertyException {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		checkNotFinished();
+		Properties.checkValue(propertyValue);
+		mChanges.add(new SimpleImmutableEntry<PropertyPath, Object>(
+				propertyPath, propertyValue));
+	}
+
+	/**
+	 * @return the number of values added to this transaction
+	 */
+	public int size() {
+		return mChanges.size();
+	}
+
+	/**
+	 * Stores all values of this transaction with a single read and write of
+	 * the property-file. Values are applied in the order they were added, so
+	 * a later value for the same property path wins. Nothing is written if no
+	 * value was added.
+	 *
+	 * @throws PropertyException
+	 *             if the property-file could not be read or written
+	 */
+	public void commit() throws PropertyException {
+		checkNotFinished();
+		mFinished = true;
+		if (!mChanges.isEmpty()) {
+			mProperties.commit(mChanges);
+		}
+	}
+
+	/**
+	 * Discards all values of this transaction.
+	 */
+	public void rollback() {
+		checkNotFinished();
+		mFinished = true;
+		mChanges.clear();
+	}
+
+	private void checkNotFinished() {
+		if (mFinished) {
+			throw new IllegalStateException(
+					"transaction is already committed or rolled back");
+		}
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * Base class of the read-only views on property-files, like
+ * {@link LayeredProperties} and {@link DirectoryProperties}. A view only
+ * resolves a property path with {@link #find(PropertyPath)}; the typed
+ * getters, their default values and the conversions of the values are
+ * implemented once here.
+ *
+ * Values returned are copies, modifying them does not affect the view.
+ */
+abstract class PropertiesView {
+
+	private final ValueConverter mConverter;
+
+	/**
+	 * Create a view with its own {@link ValueConverter}.
+	 */
+	PropertiesView() {
+		this(new ValueConverter());
+	}
+
+	/**
+	 * Create a view that shares the cached conversions of a
+	 * {@link ValueConverter}.
+	 *
+	 * @param converter
+	 *            the {@link ValueConverter} of the typed getters
+	 */
+	PropertiesView(ValueConverter converter) {
+		ObjectChecks.checkForNullReference(converter, "converter is null");
+		mConverter = converter;
+	}
+
+	/**
+	 * Get the value from the property path.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the value from the propertyPath.
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public Object getValue(String propertyPath) throws PropertyException {
+		return getValue(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the value from the propertyPath.
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public Object getValue(PropertyPath propertyPath) throws PropertyException {
+		return PropertiesReader.copyOfValue(lookup(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path. If the property path does not
+	 * exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value from the propertyPath or the default value
+	 */
+	public Object getValue(String propertyPath, Object defaultValue) {
+		return getValue(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the value from the property path. If the property path does not
+	 * exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value from the propertyPath or the default value
+	 */
+	public Object getValue(PropertyPath propertyPath, Object defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return PropertiesReader.copyOfValue(o);
+	}
+
+	/**
+	 * Get the value from the property path as a {@link String}.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the {@link String} value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public String getString(String propertyPath) throws PropertyException {
+		return getString(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path as a {@link String}.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the {@link String} value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public String getString(PropertyPath propertyPath) throws PropertyException {
+		return lookup(propertyPath).toString();
+	}
+
+	/**
+	 * Get the value from the property path as a {@link String}. If the property
+	 * path does not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public String getString(String propertyPath, String defaultValue) {
+		return getString(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the value from the property path as a {@link String}. If the property
+	 * path does not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public String getString(PropertyPath propertyPath, String defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			// the defaultValue may be null
+			return defaultValue;
+		}
+		return o.toString();
+	}
+
+	/**
+	 * Get the value from the property path as int.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the int value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public int getInt(String propertyPath) throws PropertyException {
+		return getInt(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path as int.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the int value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public int getInt(PropertyPath propertyPath) throws PropertyException {
+		return mConverter.toInt(lookup(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path as int. If the property path does
+	 * not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public int getInt(String propertyPath, int defaultValue) {
+		return getInt(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the value from the property path as int. If the property path does
+	 * not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public int getInt(PropertyPath propertyPath, int defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return mConverter.toInt(o);
+	}
+
+	/**
+	 * Get the value from the property path as double.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the double value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public double getDouble(String propertyPath) throws PropertyException {
+		return getDouble(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path as double.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the double value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public double getDouble(PropertyPath propertyPath)
+			throws PropertyException {
+		return mConverter.toDouble(lookup(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path as double. If the property path does
+	 * not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public double getDouble(String propertyPath, double defaultValue) {
+		return getDouble(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the value from the property path as double. If the property path does
+	 * not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public double getDouble(PropertyPath propertyPath, double defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return mConverter.toDouble(o);
+	}
+
+	/**
+	 * Get the value from the property path as boolean.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the boolean value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public boolean getBoolean(String propertyPath) throws PropertyException {
+		return getBoolean(PropertyPath.of(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path as boolean.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @return the boolean value for the given propertyPath
+	 * @throws PropertyException
+	 *             if the property path does not exist or the properties
+	 *             could not be loaded
+	 */
+	public boolean getBoolean(PropertyPath propertyPath)
+			throws PropertyException {
+		return ValueConverter.toBoolean(lookup(propertyPath));
+	}
+
+	/**
+	 * Get the value from the property path as boolean. If the property path
+	 * does not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public boolean getBoolean(String propertyPath, boolean defaultValue) {
+		return getBoolean(PropertyPath.of(propertyPath), defaultValue);
+	}
+
+	/**
+	 * Get the value from the property path as boolean. If the property path
+	 * does not exist, the default value is returned.
+	 *
+	 * @param propertyPath
+	 *            a pre-parsed property path
+	 * @param defaultValue
+	 *            is returned when the propertyPath does not exist
+	 * @return the value for the given propertyPath
+	 */
+	public boolean getBoolean(PropertyPath propertyPath, boolean defaultValue) {
+		Object o = lookupOrNull(propertyPath);
+		if (o == null) {
+			return defaultValue;
+		}
+		return ValueConverter.toBoolean(o);
+	}
+
+	/**
+	 * Resolves a property path, the value returned must not be modified.
+	 *
+	 * @param propertyPath
+	 *            the property path, not null
+	 * @return the value or null, if the property path does not exist
+	 * @throws PropertyException
+	 *             if the properties could not be loaded
+	 */
+	abstract Object find(PropertyPath propertyPath) throws PropertyException;
+
+	/**
+	 * @param propertyPath
+	 *            a property path that does not exist
+	 * @return the exception thrown by the getters without a default value
+	 */
+	PropertyException notFound(PropertyPath propertyPath) {
+		return new PropertyException("property path[" + propertyPath
+				+ "] is not a property key!");
+	}
+
+	private Object lookup(PropertyPath propertyPath) throws PropertyException {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		Object value = find(propertyPath);
+		if (value == null) {
+			throw notFound(propertyPath);
+		}
+		return value;
+	}
+
+	private Object lookupOrNull(PropertyPath propertyPath) {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		try {
+			return find(propertyPath);
+		} catch (PropertyException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Watches the property-file of a {@link Properties} instance and all of its
+ * sub-{@link Properties}. When the file changed, the cached content is
+ * reloaded and all registered {@link PropertiesChangeListener}s are notified.
+ * {@link PropertiesDiffListener}s are only notified if the subtree of their
+ * {@link Properties} instance differs from the content seen before.
+ *
+ * @see FileWatchService
+ */
+final class PropertiesWatcher {
+
+	private static Logger mLogger = Logger.getLogger(PropertiesWatcher.class);
+
+	private final PropertiesReader mReader;
+
+	private final Path mFile;
+
+	private final List<Registration> mListeners = new CopyOnWriteArrayList<Registration>();
+
+	private final List<Registration> mDiffListeners = new CopyOnWriteArrayList<Registration>();
+
+	/**
+	 * The content the next change is compared with, only kept while there
+	 * are {@link PropertiesDiffListener}s.
+	 */
+	private Map<String, Object> mLastContent;
+
+	private FileWatchService mService;
+
+	private volatile long mDebounceMillis = -1;
+
+	/**
+	 * Creates a {@link PropertiesWatcher} for a property-file.
+	 *
+	 * @param fileName
+	 *            the file name of the property-file
+	 * @param reader
+	 *            the {@link PropertiesReader} whose cache is refreshed on
+	 *            changes
+	 */
+	PropertiesWatcher(String fileName, PropertiesReader reader) {
+		mFile = Paths.get(fileName).toAbsolutePath().normalize();
+		mReader = reader;
+	}
+
+	/**
+	 * Starts watching the property-file.
+	 *
+	 * @param debounceMillis
+	 *            changes are reported when the file was not modified again for
+	 *            this many milliseconds
+	 * @throws IOException
+	 *             if the directory of the property-file can not be watched
+	 */
+	synchronized void start(long debounceMillis) throws IOException {
+		if (debounceMillis < 0) {
+			throw new IllegalArgumentException("debounceMillis is negative");
+		}
+		if (isWatching()) {
+			mDebounceMillis = debounceMillis;
+			return;
+		}
+		mService = FileWatchService.getInstance();
+		mService.register(mFile, this);
+		mDebounceMillis = debounceMillis;
+	}
+
+	/**
+	 * Stops watching the property-file.
+	 */
+	synchronized void stop() {
+		if (isWatching()) {
+			mService.unregister(mFile, this);
+			mDebounceMillis = -1;
+		}
+	}
+
+	/**
+	 * @return true, if the property-file is watched
+	 */
+	boolean isWatching() {
+		return mDebounceMillis >= 0;
+	}
+
+	/**
+	 * @return the time in milliseconds without further modification after
+	 *         which a change is reported
+	 */
+	long getDebounceMillis() {
+		return mDebounceMillis;
+	}
+
+	/**
+	 * Adds a listener.
+	 *
+	 * @param properties
+	 *            the {@link Properties} instance that is passed to the
+	 *            listener
+	 * @param listener
+	 *            the {@link PropertiesChangeListener}
+	 */
+	void addListener(Properties properties, PropertiesChangeListener listener) {
+		mListeners.add(new Registration(properties, listener, null));
+	}
+
+	/**
+	 * Adds a listener that is notified with the changes of the subtree of a
+	 * {@link Properties} instance. The first such listener loads the content
+	 * later changes are compared with.
+	 *
+	 * @param properties
+	 *            the {@link Properties} instance whose subtree is compared
+	 *            and that is passed to the listener
+	 * @param listener
+	 *            the {@link PropertiesDiffListener}
+	 * @throws IOException
+	 *             if the property-file could not be loaded
+	 */
+	synchronized void addDiffListener(Properties properties,
+			PropertiesDiffListener listener) throws IOException {
+		if (mLastContent == null) {
+			mLastContent = mReader.loadShared();
+		}
+		mDiffListeners.add(new Registration(properties, null, listener));
+	}
+
+	/**
+	 * Removes all registrations of a listener.
+	 *
+	 * @param listener
+	 *            the {@link PropertiesDiffListener}
+	 */
+	synchronized void removeDiffListener(PropertiesDiffListener listener) {
+		for (Registration r : mDiffListeners) {
+			if (r.mDiffListener == listener) {
+				mDiffListeners.remove(r);
+			}
+		}
+		if (mDiffListeners.isEmpty()) {
+			mLastContent = null;
+		}
+	}
+
+	/**
+	 * Removes all registrations of a listener.
+	 *
+	 * @param listener
+	 *            the {@link PropertiesChangeListener}
+	 */
+	void removeListener(PropertiesChangeListener listener) {
+		for (Registration r : mListeners) {
+			if (r.mListener == listener) {
+				mListeners.remove(r);
+			}
+		}
+	}
+
+	/**
+	 * Called by the {@link FileWatchService} once the property-file has not
+	 * been modified for the debounce time.
+	 */
+	void fileChanged() {
+		Map<String, Object> oldContent;
+		Map<String, Object> newContent = null;
+		synchronized (this) {
+			oldContent = mLastContent;
+			if (mReader.isCached() || oldContent != null) {
+				try {
+					newContent = mReader.loadShared();
+				} catch (IOException e) {
+					mLogger.warn("Could not reload " + mFile + ": "
+							+ e.getMessage());
+					return;
+				}
+			}
+			if (oldContent != null) {
+				mLastContent = newContent;
+			}
+		}
+
+		for (Registration r : mListeners) {
+			try {
+				r.mListener.propertiesChanged(r.mProperties);
+			} catch (RuntimeException e) {
+				mLogger.error("PropertiesChangeListener failed for " + mFile, e);
+			}
+		}
+
+		if (oldContent == null || oldContent == newContent) {
+			return;
+		}
+		for (Registration r : mDiffListeners) {
+			// unchanged subtrees of cached properties are identical, they
+			// are skipped without comparing them
+			PropertyPath prefix = r.mProperties.getPropertyPathPrefix();
+			PropertiesDiff diff = PropertiesDiff.compute(
+					PropertiesDiff.subtree(oldContent, prefix),
+					PropertiesDiff.subtree(newContent, prefix));
+			if (diff.isEmpty()) {
+				continue;
+			}
+			try {
+				r.mDiffListener.propertiesChanged(r.mProperties, diff);
+			} catch (RuntimeException e) {
+				mLogger.error("PropertiesDiffListener failed for " + mFile, e);
+			}
+		}
+	}
+
+	/**
+	 * A listener together with the {@link Properties} instance it was added
+	 * to.
+	 */
+	private static final class Registration {
+
+		private final Properties mProperties;
+
+		private final PropertiesChangeListener mListener;
+
+		private final PropertiesDiffListener mDiffListener;
+
+		private Registration(Properties properties,
+				PropertiesChangeListener listener,
+				PropertiesDiffListener diffListener) {
+			mProperties = properties;
+			mListener = listener;
+			mDiffListener = diffListener;
+		}
+	}
+}
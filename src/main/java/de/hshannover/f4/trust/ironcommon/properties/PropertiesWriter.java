@@ -39,19 +39,34 @@
 package de.hshannover.f4.trust.ironcommon.properties;
 
 import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlJournal;
 import de.hshannover.f4.trust.ironcommon.yaml.YamlWriter;
 
 /**
  * Class that encapsulates writing of property-files.
  *
+ * Changes can be appended to the journal of the file instead of writing the
+ * whole file, see {@link YamlJournal}. Every write of the whole file drops
+ * the journal, as the written content already contains its changes.
+ *
  * @author Marcel Reichenbach
  */
 public class PropertiesWriter {
 
 	private String mFileName;
 
+	private FileMetrics mMetrics;
+
+	private volatile long mCompactionDelayMillis = Properties.DEFAULT_COMPACTION_DELAY_MILLIS;
+
 	/**
 	 * Create a {@link PropertiesWriter} with a given filename.
 	 *
@@ -60,6 +75,7 @@ public class PropertiesWriter {
 	 */
 	public PropertiesWriter(String fileName) {
 		mFileName = fileName;
+		mMetrics = FileMetrics.getMetrics(fileName);
 	}
 
 	/**
@@ -73,6 +89,99 @@ public class PropertiesWriter {
 	 *             exist) or the given filename is a directory.
 	 */
 	public void save(Map<String, Object> data) throws IOException {
-		YamlWriter.persist(mFileName, data);
+		Lock lock = FileLocks.lockForWriting(mFileName, mMetrics);
+		try {
+			YamlWriter.persist(mFileName, data);
+			YamlJournal.delete(mFileName);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Saves a {@link Map} to the properties-file, that differs from the
+	 * current content of the file only by the given changes. Where possible
+	 * only the changed values are replaced in the text of the file, see
+	 * {@link YamlWriter#persist(String, Object, List)}.
+	 *
+	 * @param data
+	 *            a {@link Map} with property keys and values to be stored.
+	 *            Values can be deeper nested {@link Map}s.
+	 * @param changes
+	 *            the property paths and values changed in data, in the order
+	 *            they were applied
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	public void save(Map<String, Object> data,
+			List<Map.Entry<PropertyPath, Object>> changes) throws IOException {
+		List<Map.Entry<String[], Object>> keys = toKeys(changes);
+		Lock lock = FileLocks.lockForWriting(mFileName, mMetrics);
+		try {
+			YamlWriter.persist(mFileName, data, keys);
+			YamlJournal.delete(mFileName);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Appends changes to the journal of the properties-file and schedules the
+	 * compaction of the journal into the file. If the changes can not be
+	 * journaled, the {@link Map} is saved like
+	 * {@link #save(Map, List)} does.
+	 *
+	 * @param data
+	 *            the {@link Map} with property keys and values, the current
+	 *            content with the changes applied
+	 * @param changes
+	 *            the property paths and values changed in data, in the order
+	 *            they were applied
+	 * @throws IOException
+	 *             If the journal or the file could not be written.
+	 */
+	public void append(Map<String, Object> data,
+			List<Map.Entry<PropertyPath, Object>> changes) throws IOException {
+		if (YamlJournal.append(mFileName, toKeys(changes))) {
+			JournalCompactor.schedule(mFileName, mCompactionDelayMillis);
+		} else {
+			save(data, changes);
+		}
+	}
+
+	/**
+	 * Writes the changes in the journal of the properties-file into the file
+	 * now.
+	 *
+	 * @throws IOException
+	 *             If the journal or the file could not be read or written.
+	 */
+	public void compact() throws IOException {
+		YamlJournal.compact(mFileName);
+	}
+
+	/**
+	 * @param compactionDelayMillis
+	 *            the time in milliseconds the journal is compacted into the
+	 *            file after the first change was appended
+	 */
+	public void setCompactionDelay(long compactionDelayMillis) {
+		if (compactionDelayMillis < 0) {
+			throw new IllegalArgumentException(
+					"compactionDelayMillis is negative");
+		}
+		mCompactionDelayMillis = compactionDelayMillis;
+	}
+
+	private static List<Map.Entry<String[], Object>> toKeys(
+			List<Map.Entry<PropertyPath, Object>> changes) {
+		List<Map.Entry<String[], Object>> keys = new ArrayList<Map.Entry<String[], Object>>(
+				changes.size());
+		for (Map.Entry<PropertyPath, Object> change : changes) {
+			keys.add(new SimpleImmutableEntry<String[], Object>(change
+					.getKey().getKeys(), change.getValue()));
+		}
+		return keys;
 	}
 }
@@ -0,0 +1,84 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+/**
+ * A single change of a property value, see {@link PropertiesDiff}. Values are
+ * copies, modifying them does not affect the properties.
+ */
+public final class PropertyChange {
+
+	private final PropertyPath mPropertyPath;
+
+	private final Object mOldValue;
+
+	private final Object mNewValue;
+
+	PropertyChange(PropertyPath propertyPath, Object oldValue, Object newValue) {
+		mPropertyPath = propertyPath;
+		mOldValue = PropertiesReader.copyOfValue(oldValue);
+		mNewValue = PropertiesReader.copyOfValue(newValue);
+	}
+
+	/**
+	 * @return the property path of the value
+	 */
+	public PropertyPath getPropertyPath() {
+		return mPropertyPath;
+	}
+
+	/**
+	 * @return the value before the change, null if it was added
+	 */
+	public Object getOldValue() {
+		return mOldValue;
+	}
+
+	/**
+	 * @return the value after the change, null if it was removed
+	 */
+	public Object getNewValue() {
+		return mNewValue;
+	}
+
+	@Override
+	public String toString() {
+		return mPropertyPath + ": " + mOldValue + " -> " + mNewValue;
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * An immutable, pre-parsed property path (Example: foo.bar.key). The path is
+ * split into its keys only once, so frequently used paths can be kept in
+ * constants and passed to {@link Properties} without being parsed again on
+ * every access.
+ *
+ * The keys are interned and the hash code is computed on creation.
+ */
+public final class PropertyPath {
+
+	/**
+	 * The empty property path, it points to the root of the properties.
+	 */
+	public static final PropertyPath ROOT = new PropertyPath(new String[0]);
+
+	/**
+	 * The maximum number of parsed paths kept by {@link #of(String)}.
+	 */
+	private static final int MAX_PARSED_PATHS = 4096;
+
+	private static final ConcurrentMap<String, PropertyPath> PARSED_PATHS =
+			new ConcurrentHashMap<String, PropertyPath>();
+
+	private final String[] mKeys;
+
+	private final String mPath;
+
+	private final int mHashCode;
+
+	/**
+	 * Create a {@link PropertyPath} from its {@link String} representation.
+	 * Empty keys at the end of the path are ignored, an empty {@link String}
+	 * is the {@link #ROOT} path.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 */
+	public PropertyPath(String propertyPath) {
+		this(parse(propertyPath));
+	}
+
+	/**
+	 * Returns the {@link PropertyPath} for a {@link String} representation.
+	 * Recently parsed paths are reused, so property paths given as
+	 * {@link String} constants are only parsed once.
+	 *
+	 * @param propertyPath
+	 *            Example: foo.bar.key
+	 * @return the parsed {@link PropertyPath}
+	 */
+	static PropertyPath of(String propertyPath) {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+		PropertyPath path = PARSED_PATHS.get(propertyPath);
+		if (path == null) {
+			path = new PropertyPath(propertyPath);
+			if (PARSED_PATHS.size() >= MAX_PARSED_PATHS) {
+				// the paths are not all constants, start over
+				PARSED_PATHS.clear();
+			}
+			PARSED_PATHS.put(propertyPath, path);
+		}
+		return path;
+	}
+
+	/**
+	 * Create a {@link PropertyPath} from its keys, the array is not copied.
+	 *
+	 * @param keys
+	 *            the keys of the path, none of them is empty at the end
+	 */
+	PropertyPath(String[] keys) {
+		mKeys = keys;
+		mPath = join(keys);
+		mHashCode = Arrays.hashCode(keys);
+	}
+
+	/**
+	 * Splits a property path at every '.', like {@link String#split(String)}
+	 * does, and interns the keys.
+	 */
+	private static String[] parse(String propertyPath) {
+		ObjectChecks
+				.checkForNullReference(propertyPath, "propertyPath is null");
+
+		List<String> keys = new ArrayList<String>();
+		int start = 0;
+		int end;
+		while ((end = propertyPath.indexOf('.', start)) >= 0) {
+			keys.add(propertyPath.substring(start, end).intern());
+			start = end + 1;
+		}
+		keys.add(propertyPath.substring(start).intern());
+
+		// trailing empty keys are dropped
+		int size = keys.size();
+		while (size > 0 && keys.get(size - 1).isEmpty()) {
+			size--;
+		}
+		return keys.subList(0, size).toArray(new String[size]);
+	}
+
+	private static String join(String[] keys) {
+		if (keys.length == 0) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder(keys[0]);
+		for (int i = 1; i < keys.length; i++) {
+			sb.append('.').append(keys[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Creates a new {@link PropertyPath} by appending a path to this one.
+	 *
+	 * @param path
+	 *            the {@link PropertyPath} to be appended
+	 * @return Example: foo.bar appended with new.key is foo.bar.new.key
+	 */
+	public PropertyPath append(PropertyPath path) {
+		ObjectChecks.checkForNullReference(path, "path is null");
+		if (path.isRoot()) {
+			return this;
+		} else if (isRoot()) {
+			return path;
+		}
+		String[] keys = Arrays.copyOf(mKeys, mKeys.length + path.mKeys.length);
+		System.arraycopy(path.mKeys, 0, keys, mKeys.length, path.mKeys.length);
+		return new PropertyPath(keys);
+	}
+
+	/**
+	 * Creates a new {@link PropertyPath} by appending a path to this one.
+	 *
+	 * @param path
+	 *            the property path to be appended (Example: new.key)
+	 * @return Example: foo.bar appended with new.key is foo.bar.new.key
+	 */
+	public PropertyPath append(String path) {
+		return append(of(path));
+	}
+
+	/**
+	 * @return true, if this is the empty path
+	 */
+	public boolean isRoot() {
+		return mKeys.length == 0;
+	}
+
+	/**
+	 * @return the number of keys in this path
+	 */
+	public int getLength() {
+		return mKeys.length;
+	}
+
+	/**
+	 * @param index
+	 *            the position of the key, starting at 0
+	 * @return the key at the given position
+	 */
+	public String getKey(int index) {
+		return mKeys[index];
+	}
+
+	/**
+	 * @return the keys of this path, the array must not be modified
+	 */
+	String[] getKeys() {
+		return mKeys;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PropertyPath)) {
+			return false;
+		}
+		PropertyPath other = (PropertyPath) o;
+		return mHashCode == other.mHashCode
+				&& Arrays.equals(mKeys, other.mKeys);
+	}
+
+	@Override
+	public int hashCode() {
+		return mHashCode;
+	}
+
+	@Override
+	public String toString() {
+		return mPath;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The values of several property paths, resolved at once against one state of
+ * the property-file by {@link Properties#getPropertyValues(java.util.Collection)}.
+ * The typed getters convert the values like the ones of {@link Properties},
+ * but only the requested property paths can be read.
+ */
+public final class PropertyValues extends PropertiesView {
+
+	private final Map<String, Object> mValues;
+
+	private final Map<PropertyPath, Object> mPropertyPaths;
+
+	PropertyValues(Map<String, Object> values, ValueConverter converter) {
+		super(converter);
+		mValues = Collections.unmodifiableMap(values);
+		mPropertyPaths = new HashMap<PropertyPath, Object>(
+				(int) (values.size() / 0.75f) + 1);
+		for (Map.Entry<String, Object> e : values.entrySet()) {
+			mPropertyPaths.put(PropertyPath.of(e.getKey()), e.getValue());
+		}
+	}
+
+	/**
+	 * @return the requested property paths that exist, with their values
+	 */
+	public Map<String, Object> asMap() {
+		return mValues;
+	}
+
+	/**
+	 * @return the requested property paths that exist
+	 */
+	public Set<String> getPropertyPaths() {
+		return mValues.keySet();
+	}
+
+	/**
+	 * @param propertyPath
+	 *            a requested property path
+	 * @return true, if the property path exists
+	 */
+	public boolean contains(String propertyPath) {
+		return mValues.containsKey(propertyPath);
+	}
+
+	/**
+	 * Resolves a property path against the requested ones.
+	 */
+	@Override
+	Object find(PropertyPath propertyPath) {
+		return mPropertyPaths.get(propertyPath);
+	}
+
+	@Override
+	PropertyException notFound(PropertyPath propertyPath) {
+		return new PropertyException("property path[" + propertyPath
+				+ "] was not requested or does not exist!");
+	}
+
+	@Override
+	public String toString() {
+		return mValues.toString();
+	}
+}
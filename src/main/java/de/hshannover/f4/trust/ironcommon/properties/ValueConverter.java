@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.properties;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts property values to int, double and boolean for the typed getters
+ * of {@link Properties} and of the {@link PropertiesView}s. Values that already have the requested type are
+ * returned directly. Values given as {@link String} are parsed once, the
+ * result is cached by the {@link String} value, so repeated reads of the same
+ * value neither parse nor allocate.
+ *
+ * The conversions behave like parsing {@link Object#toString()} of the value:
+ * a value that can not be parsed throws a {@link NumberFormatException}.
+ */
+final class ValueConverter {
+
+	/**
+	 * The maximum number of cached conversions per type, the cache is cleared
+	 * when it is exceeded.
+	 */
+	private static final int MAX_CACHED_VALUES = 4096;
+
+	private final ConcurrentMap<String, Integer> mInts = new ConcurrentHashMap<String, Integer>();
+
+	private final ConcurrentMap<String, Double> mDoubles = new ConcurrentHashMap<String, Double>();
+
+	/**
+	 * @param value
+	 *            a property value, not null
+	 * @return the value as int
+	 */
+	int toInt(Object value) {
+		if (value instanceof Integer) {
+			return ((Integer) value).intValue();
+		} else if (value instanceof String) {
+			String s = (String) value;
+			Integer i = mInts.get(s);
+			if (i == null) {
+				i = Integer.valueOf(Integer.parseInt(s));
+				put(mInts, s, i);
+			}
+			return i.intValue();
+		}
+		return Integer.parseInt(value.toString());
+	}
+
+	/**
+	 * @param value
+	 *            a property value, not null
+	 * @return the value as double
+	 */
+	double toDouble(Object value) {
+		if (value instanceof Double) {
+			return ((Double) value).doubleValue();
+		} else if (value instanceof Integer || value instanceof Long) {
+			return ((Number) value).doubleValue();
+		} else if (value instanceof String) {
+			String s = (String) value;
+			Double d = mDoubles.get(s);
+			if (d == null) {
+				d = Double.valueOf(Double.parseDouble(s));
+				put(mDoubles, s, d);
+			}
+			return d.doubleValue();
+		}
+		return Double.parseDouble(value.toString());
+	}
+
+	/**
+	 * @param value
+	 *            a property value, not null
+	 * @return the value as boolean
+	 */
+	static boolean toBoolean(Object value) {
+		if (value instanceof Boolean) {
+			return ((Boolean) value).booleanValue();
+		}
+		// parsing a String neither allocates nor fails
+		return Boolean.parseBoolean(value.toString());
+	}
+
+	private static <T> void put(ConcurrentMap<String, T> cache, String key,
+			T value) {
+		if (cache.size() >= MAX_CACHED_VALUES) {
+			cache.clear();
+		}
+		cache.put(key, value);
+	}
+}
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Process-wide registry of {@link ReadWriteLock}s for files, keyed by the
+ * canonical path of the file. Different names for the same file (relative
+ * paths, symbolic links) share one lock, different files never contend.
+ *
+ * The locks are held weakly: a lock is dropped from the registry once no
+ * one references it, neither the {@link ReadWriteLock} nor one of its
+ * {@link Lock}s. A thread holding or waiting for a lock always references
+ * it, so two threads never get different locks for the same file.
+ */
+public final class FileLocks {
+
+	private static final ConcurrentMap<String, LockReference> LOCKS = new ConcurrentHashMap<String, LockReference>();
+
+	private static final ConcurrentMap<String, LockReference> LOCKS_BY_NAME =
+			new ConcurrentHashMap<String, LockReference>();
+
+	private static final ReferenceQueue<ReadWriteLock> QUEUE = new ReferenceQueue<ReadWriteLock>();
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private FileLocks() {
+	}
+
+	/**
+	 * Returns the {@link ReadWriteLock} for a file. The lock is reentrant and
+	 * the holder of the write lock may acquire the read lock as well.
+	 *
+	 * @param fileName
+	 *            the name of the file, it does not need to exist
+	 * @return the {@link ReadWriteLock} shared by all names of the file
+	 */
+	public static ReadWriteLock getLock(String fileName) {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+		expunge();
+
+		// resolving the canonical path needs file system calls, so remember
+		// the lock for every name it was requested with
+		LockReference reference = LOCKS_BY_NAME.get(fileName);
+		ReadWriteLock lock = reference != null ? reference.get() : null;
+		if (lock != null) {
+			return lock;
+		}
+
+		String key = canonicalPath(fileName);
+		while (true) {
+			reference = LOCKS.get(key);
+			lock = reference != null ? reference.get() : null;
+			if (lock != null) {
+				break;
+			}
+			ReadWriteLock newLock = new FileLock();
+			LockReference newReference = new LockReference(key, newLock);
+			if (reference == null ? LOCKS.putIfAbsent(key, newReference) == null
+					: LOCKS.replace(key, reference, newReference)) {
+				lock = newLock;
+				reference = newReference;
+				break;
+			}
+		}
+		LOCKS_BY_NAME.put(fileName, reference);
+		return lock;
+	}
+
+	/**
+	 * Drops the entries of the locks no one references anymore.
+	 */
+	private static void expunge() {
+		Reference<? extends ReadWriteLock> reference;
+		while ((reference = QUEUE.poll()) != null) {
+			LockReference lockReference = (LockReference) reference;
+			LOCKS.remove(lockReference.mKey, lockReference);
+			LOCKS_BY_NAME.values().removeAll(
+					Collections.singleton(lockReference));
+		}
+	}
+
+	/**
+	 * Acquires the read lock of a file. The time waited is recorded, unless
+	 * the current thread already holds the read or the write lock, so a
+	 * nested acquisition is not counted again.
+	 *
+	 * @param fileName
+	 *            the name of the file, it does not need to exist
+	 * @param metrics
+	 *            the {@link FileMetrics} of the file
+	 * @return the acquired read lock
+	 */
+	public static Lock lockForReading(String fileName, FileMetrics metrics) {
+		ReadWriteLock readWriteLock = getLock(fileName);
+		boolean nested = isHeldByCurrentThread(readWriteLock);
+		Lock lock = readWriteLock.readLock();
+		long start = System.nanoTime();
+		lock.lock();
+		if (!nested) {
+			metrics.recordReadLockWait(System.nanoTime() - start);
+		}
+		return lock;
+	}
+
+	/**
+	 * Acquires the write lock of a file. The time waited is recorded, unless
+	 * the current thread already holds the write lock, so a nested
+	 * acquisition is not counted again.
+	 *
+	 * @param fileName
+	 *            the name of the file, it does not need to exist
+	 * @param metrics
+	 *            the {@link FileMetrics} of the file
+	 * @return the acquired write lock
+	 */
+	public static Lock lockForWriting(String fileName, FileMetrics metrics) {
+		ReadWriteLock readWriteLock = getLock(fileName);
+		boolean nested = isHeldByCurrentThread(readWriteLock);
+		Lock lock = readWriteLock.writeLock();
+		long start = System.nanoTime();
+		lock.lock();
+		if (!nested) {
+			metrics.recordWriteLockWait(System.nanoTime() - start);
+		}
+		return lock;
+	}
+
+	private static boolean isHeldByCurrentThread(ReadWriteLock lock) {
+		ReentrantReadWriteLock reentrant = (ReentrantReadWriteLock) lock;
+		return reentrant.isWriteLockedByCurrentThread()
+				|| reentrant.getReadHoldCount() > 0;
+	}
+
+	/**
+	 * @param fileName
+	 *            the name of the file
+	 * @return the canonical path of the file or its absolute path, if the
+	 *         canonical path can not be determined
+	 */
+	public static String canonicalPath(String fileName) {
+		File f = new File(fileName);
+		try {
+			return f.getCanonicalPath();
+		} catch (IOException e) {
+			return f.getAbsolutePath();
+		}
+	}
+
+	/**
+	 * A {@link ReentrantReadWriteLock} whose {@link Lock}s reference it, so
+	 * the lock stays registered while one of them is held.
+	 */
+	private static final class FileLock extends ReentrantReadWriteLock {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ReadLock mReadLock = new FileReadLock(this);
+
+		private final WriteLock mWriteLock = new FileWriteLock(this);
+
+		@Override
+		public ReadLock readLock() {
+			return mReadLock;
+		}
+
+		@Override
+		public WriteLock writeLock() {
+			return mWriteLock;
+		}
+	}
+
+	private static final class FileReadLock extends
+			ReentrantReadWriteLock.ReadLock {
+
+		private static final long serialVersionUID = 1L;
+
+		@SuppressWarnings("unused")
+		private final FileLock mOwner;
+
+		private FileReadLock(FileLock owner) {
+			super(owner);
+			mOwner = owner;
+		}
+	}
+
+	private static final class FileWriteLock extends
+			ReentrantReadWriteLock.WriteLock {
+
+		private static final long serialVersionUID = 1L;
+
+		@SuppressWarnings("unused")
+		private final FileLock mOwner;
+
+		private FileWriteLock(FileLock owner) {
+			super(owner);
+			mOwner = owner;
+		}
+	}
+
+	/**
+	 * The entry of a lock, it knows the canonical path it is registered
+	 * under.
+	 */
+	private static final class LockReference extends
+			WeakReference<ReadWriteLock> {
+
+		private final String mKey;
+
+		private LockReference(String key, ReadWriteLock lock) {
+			super(lock, QUEUE);
+			mKey = key;
+		}
+	}
+}
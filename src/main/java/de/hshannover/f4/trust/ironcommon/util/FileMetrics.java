@@ -0,0 +1,430 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Process-wide registry of metrics for files, keyed by the canonical path of
+ * the file like {@link FileLocks}. The metrics of each file are registered as
+ * MBean named
+ * <code>de.hshannover.f4.trust.ironcommon:type=FileMetrics,file="..."</code>
+ * on the platform MBean server.
+ *
+ * The yaml and properties classes record how often and how long files are
+ * parsed, serialized and written, how many bytes are moved, how many lookups
+ * miss and how long they wait for the locks of {@link FileLocks}.
+ *
+ * The metrics of a file stay registered until {@link #unregister(String)} is
+ * called for it, e.g. when the file was removed.
+ */
+public final class FileMetrics implements FileMetricsMBean {
+
+	private static final String DOMAIN = "de.hshannover.f4.trust.ironcommon";
+
+	private static final ConcurrentMap<String, FileMetrics> METRICS = new ConcurrentHashMap<String, FileMetrics>();
+
+	private static final ConcurrentMap<String, FileMetrics> METRICS_BY_NAME =
+			new ConcurrentHashMap<String, FileMetrics>();
+
+	private static Logger mLogger = Logger.getLogger(FileMetrics.class);
+
+	private final String mFile;
+
+	private final LatencyHistogram mParses = new LatencyHistogram();
+
+	private final LatencyHistogram mDumps = new LatencyHistogram();
+
+	private final LatencyHistogram mPatches = new LatencyHistogram();
+
+	private final LatencyHistogram mWrites = new LatencyHistogram();
+
+	private final AtomicLong mUnchangedWrites = new AtomicLong();
+
+	private final AtomicLong mBytesRead = new AtomicLong();
+
+	private final AtomicLong mBytesWritten = new AtomicLong();
+
+	private final StripedCounter mLookups = new StripedCounter();
+
+	private final StripedCounter mLookupMisses = new StripedCounter();
+
+	private final StripedCounter mCacheHits = new StripedCounter();
+
+	private final AtomicLong mCacheMisses = new AtomicLong();
+
+	private final LatencyHistogram mReadLockWaits = new LatencyHistogram();
+
+	private final LatencyHistogram mWriteLockWaits = new LatencyHistogram();
+
+	private FileMetrics(String file) {
+		mFile = file;
+	}
+
+	/**
+	 * Returns the metrics of a file. They are registered as MBean when they
+	 * are requested for the first time.
+	 *
+	 * @param fileName
+	 *            the name of the file, it does not need to exist
+	 * @return the {@link FileMetrics} shared by all names of the file
+	 */
+	public static FileMetrics getMetrics(String fileName) {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+
+		FileMetrics metrics = METRICS_BY_NAME.get(fileName);
+		if (metrics != null) {
+			return metrics;
+		}
+
+		String key = FileLocks.canonicalPath(fileName);
+		metrics = METRICS.get(key);
+		if (metrics == null) {
+			FileMetrics newMetrics = new FileMetrics(key);
+			metrics = METRICS.putIfAbsent(key, newMetrics);
+			if (metrics == null) {
+				metrics = newMetrics;
+				register(metrics);
+			}
+		}
+		METRICS_BY_NAME.putIfAbsent(fileName, metrics);
+		return metrics;
+	}
+
+	/**
+	 * Drops the metrics of a file and unregisters their MBean. Users that
+	 * still hold the metrics keep recording into them, but the next
+	 * {@link #getMetrics(String)} starts with new metrics.
+	 *
+	 * @param fileName
+	 *            the name of the file, it does not need to exist
+	 */
+	public static void unregister(String fileName) {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+
+		FileMetrics metrics = METRICS.remove(FileLocks.canonicalPath(fileName));
+		if (metrics == null) {
+			return;
+		}
+		METRICS_BY_NAME.values().removeAll(Collections.singleton(metrics));
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+					objectName(metrics));
+		} catch (JMException | SecurityException e) {
+			mLogger.debug("Could not unregister metrics of " + metrics.mFile
+					+ ": " + e);
+		}
+	}
+
+	/**
+	 * The metrics are collected even if they can not be registered.
+	 */
+	private static void register(FileMetrics metrics) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+					objectName(metrics));
+		} catch (JMException | SecurityException e) {
+			mLogger.debug("Could not register metrics of " + metrics.mFile
+					+ ": " + e);
+		}
+	}
+
+	private static ObjectName objectName(FileMetrics metrics)
+			throws JMException {
+		return new ObjectName(DOMAIN + ":type=FileMetrics,file="
+				+ ObjectName.quote(metrics.mFile));
+	}
+
+	/**
+	 * Records a parse of the file.
+	 *
+	 * @param nanos
+	 *            the duration of the parse
+	 * @param bytes
+	 *            the number of bytes read
+	 */
+	public void recordParse(long nanos, long bytes) {
+		mParses.record(nanos);
+		mBytesRead.addAndGet(bytes);
+	}
+
+	/**
+	 * Records bytes read without parsing, e.g. from a snapshot.
+	 *
+	 * @param bytes
+	 *            the number of bytes read
+	 */
+	public void recordRead(long bytes) {
+		mBytesRead.addAndGet(bytes);
+	}
+
+	/**
+	 * Records the serialization of a content for the file.
+	 *
+	 * @param nanos
+	 *            the duration of the serialization
+	 */
+	public void recordDump(long nanos) {
+		mDumps.record(nanos);
+	}
+
+	/**
+	 * Records a change of values in the text of the file, instead of a
+	 * serialization of the whole content.
+	 *
+	 * @param nanos
+	 *            the duration of reading and changing the text
+	 */
+	public void recordPatch(long nanos) {
+		mPatches.record(nanos);
+	}
+
+	/**
+	 * Records a write of the file.
+	 *
+	 * @param nanos
+	 *            the duration of the write
+	 * @param bytes
+	 *            the number of bytes written
+	 */
+	public void recordWrite(long nanos, long bytes) {
+		mWrites.record(nanos);
+		mBytesWritten.addAndGet(bytes);
+	}
+
+	/**
+	 * Records a write that was skipped, as the file already had the content.
+	 */
+	public void recordUnchangedWrite() {
+		mUnchangedWrites.incrementAndGet();
+	}
+
+	/**
+	 * Records a lookup of a property.
+	 *
+	 * @param found
+	 *            false, if the property does not exist
+	 */
+	public void recordLookup(boolean found) {
+		mLookups.increment();
+		if (!found) {
+			mLookupMisses.increment();
+		}
+	}
+
+	/**
+	 * Records an access to cached content of the file.
+	 *
+	 * @param hit
+	 *            false, if the content had to be loaded again
+	 */
+	public void recordCacheAccess(boolean hit) {
+		if (hit) {
+			mCacheHits.increment();
+		} else {
+			mCacheMisses.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Records the time waited for the read lock of the file.
+	 *
+	 * @param nanos
+	 *            the time waited
+	 */
+	public void recordReadLockWait(long nanos) {
+		mReadLockWaits.record(nanos);
+	}
+
+	/**
+	 * Records the time waited for the write lock of the file.
+	 *
+	 * @param nanos
+	 *            the time waited
+	 */
+	public void recordWriteLockWait(long nanos) {
+		mWriteLockWaits.record(nanos);
+	}
+
+	@Override
+	public String getFile() {
+		return mFile;
+	}
+
+	@Override
+	public long getParseCount() {
+		return mParses.getCount();
+	}
+
+	@Override
+	public double getParseMeanMillis() {
+		return mParses.getMeanMillis();
+	}
+
+	@Override
+	public double getParseP99Millis() {
+		return mParses.getPercentileMillis(0.99);
+	}
+
+	@Override
+	public double getParseMaxMillis() {
+		return mParses.getMaxMillis();
+	}
+
+	@Override
+	public long getDumpCount() {
+		return mDumps.getCount();
+	}
+
+	@Override
+	public double getDumpMeanMillis() {
+		return mDumps.getMeanMillis();
+	}
+
+	@Override
+	public double getDumpP99Millis() {
+		return mDumps.getPercentileMillis(0.99);
+	}
+
+	@Override
+	public long getPatchCount() {
+		return mPatches.getCount();
+	}
+
+	@Override
+	public double getPatchMeanMillis() {
+		return mPatches.getMeanMillis();
+	}
+
+	@Override
+	public long getWriteCount() {
+		return mWrites.getCount();
+	}
+
+	@Override
+	public long getUnchangedWriteCount() {
+		return mUnchangedWrites.get();
+	}
+
+	@Override
+	public double getWriteMeanMillis() {
+		return mWrites.getMeanMillis();
+	}
+
+	@Override
+	public double getWriteP99Millis() {
+		return mWrites.getPercentileMillis(0.99);
+	}
+
+	@Override
+	public long getBytesRead() {
+		return mBytesRead.get();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return mBytesWritten.get();
+	}
+
+	@Override
+	public long getLookupCount() {
+		return mLookups.get();
+	}
+
+	@Override
+	public long getLookupMissCount() {
+		return mLookupMisses.get();
+	}
+
+	@Override
+	public long getCacheHitCount() {
+		return mCacheHits.get();
+	}
+
+	@Override
+	public long getCacheMissCount() {
+		return mCacheMisses.get();
+	}
+
+	@Override
+	public long getReadLockWaitCount() {
+		return mReadLockWaits.getCount();
+	}
+
+	@Override
+	public double getReadLockWaitMillis() {
+		return mReadLockWaits.getTotalMillis();
+	}
+
+	@Override
+	public long getWriteLockWaitCount() {
+		return mWriteLockWaits.getCount();
+	}
+
+	@Override
+	public double getWriteLockWaitMillis() {
+		return mWriteLockWaits.getTotalMillis();
+	}
+
+	@Override
+	public void reset() {
+		mParses.reset();
+		mDumps.reset();
+		mPatches.reset();
+		mWrites.reset();
+		mUnchangedWrites.set(0);
+		mBytesRead.set(0);
+		mBytesWritten.set(0);
+		mLookups.reset();
+		mLookupMisses.reset();
+		mCacheHits.reset();
+		mCacheMisses.set(0);
+		mReadLockWaits.reset();
+		mWriteLockWaits.reset();
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.util;
+
+/**
+ * The management interface of {@link FileMetrics}. Durations are given in
+ * milliseconds, percentiles are exact up to a factor of two.
+ */
+public interface FileMetricsMBean {
+
+	/**
+	 * @return the canonical path of the file
+	 */
+	String getFile();
+
+	/**
+	 * @return how often the yml-file was parsed
+	 */
+	long getParseCount();
+
+	/**
+	 * @return the mean duration of parsing the yml-file
+	 */
+	double getParseMeanMillis();
+
+	/**
+	 * @return the 99th percentile of the duration of parsing the yml-file
+	 */
+	double getParseP99Millis();
+
+	/**
+	 * @return the longest duration of parsing the yml-file
+	 */
+	double getParseMaxMillis();
+
+	/**
+	 * @return how often a content was serialized for the yml-file
+	 */
+	long getDumpCount();
+
+	/**
+	 * @return the mean duration of serializing a content
+	 */
+	double getDumpMeanMillis();
+
+	/**
+	 * @return the 99th percentile of the duration of serializing a content
+	 */
+	double getDumpP99Millis();
+
+	/**
+	 * @return how often values were changed in the text of the yml-file
+	 *         instead of serializing the whole content
+	 */
+	long getPatchCount();
+
+	/**
+	 * @return the mean duration of reading the yml-file and changing values
+	 *         in its text
+	 */
+	double getPatchMeanMillis();
+
+	/**
+	 * @return how often the file was written
+	 */
+	long getWriteCount();
+
+	/**
+	 * @return how often writing was skipped, as the file already had the
+	 *         content
+	 */
+	long getUnchangedWriteCount();
+
+	/**
+	 * @return the mean duration of writing the file
+	 */
+	double getWriteMeanMillis();
+
+	/**
+	 * @return the 99th percentile of the duration of writing the file
+	 */
+	double getWriteP99Millis();
+
+	/**
+	 * @return the number of bytes read from the file
+	 */
+	long getBytesRead();
+
+	/**
+	 * @return the number of bytes written to the file
+	 */
+	long getBytesWritten();
+
+	/**
+	 * @return the number of property lookups
+	 */
+	long getLookupCount();
+
+	/**
+	 * @return the number of property lookups for paths that do not exist
+	 */
+	long getLookupMissCount();
+
+	/**
+	 * @return how often cached properties were up to date
+	 */
+	long getCacheHitCount();
+
+	/**
+	 * @return how often cached properties had to be loaded again
+	 */
+	long getCacheMissCount();
+
+	/**
+	 * @return how often the read lock of the file was acquired
+	 */
+	long getReadLockWaitCount();
+
+	/**
+	 * @return the total time spent waiting for the read lock of the file
+	 */
+	double getReadLockWaitMillis();
+
+	/**
+	 * @return how often the write lock of the file was acquired
+	 */
+	long getWriteLockWaitCount();
+
+	/**
+	 * @return the total time spent waiting for the write lock of the file
+	 */
+	double getWriteLockWaitMillis();
+
+	/**
+	 * Sets all counters to zero.
+	 */
+	void reset();
+}
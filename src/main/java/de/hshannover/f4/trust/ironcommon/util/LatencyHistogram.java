@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records durations in buckets of powers of two microseconds: bucket 0 counts
+ * durations below 1 microsecond, bucket i durations from 2^(i-1) up to 2^i
+ * microseconds. Percentiles are reported as the upper bound of their bucket,
+ * so they are exact up to a factor of two.
+ */
+final class LatencyHistogram {
+
+	private static final int BUCKETS = 32;
+
+	private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong mCount = new AtomicLong();
+
+	private final AtomicLong mTotalNanos = new AtomicLong();
+
+	private final AtomicLong mMaxNanos = new AtomicLong();
+
+	/**
+	 * @param nanos
+	 *            the duration in nanoseconds
+	 */
+	void record(long nanos) {
+		long micros = Math.max(nanos, 0) / 1000;
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros),
+				BUCKETS - 1);
+		mBuckets.incrementAndGet(bucket);
+		mCount.incrementAndGet();
+		mTotalNanos.addAndGet(nanos);
+		long max = mMaxNanos.get();
+		while (nanos > max && !mMaxNanos.compareAndSet(max, nanos)) {
+			max = mMaxNanos.get();
+		}
+	}
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	long getCount() {
+		return mCount.get();
+	}
+
+	/**
+	 * @return the sum of all recorded durations in milliseconds
+	 */
+	double getTotalMillis() {
+		return toMillis(mTotalNanos.get());
+	}
+
+	/**
+	 * @return the mean of the recorded durations in milliseconds
+	 */
+	double getMeanMillis() {
+		long count = mCount.get();
+		return count == 0 ? 0 : toMillis(mTotalNanos.get()) / count;
+	}
+
+	/**
+	 * @return the longest recorded duration in milliseconds
+	 */
+	double getMaxMillis() {
+		return toMillis(mMaxNanos.get());
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 1
+	 * @return the upper bound of the bucket containing the percentile in
+	 *         milliseconds
+	 */
+	double getPercentileMillis(double percentile) {
+		long[] buckets = getBuckets();
+		long total = 0;
+		for (long b : buckets) {
+			total += b;
+		}
+		long rank = (long) Math.ceil(percentile * total);
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank && seen > 0) {
+				return (1L << i) / 1000.0;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the counts of all buckets
+	 */
+	long[] getBuckets() {
+		long[] buckets = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = mBuckets.get(i);
+		}
+		return buckets;
+	}
+
+	/**
+	 * Removes all recorded durations.
+	 */
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			mBuckets.set(i, 0);
+		}
+		mCount.set(0);
+		mTotalNanos.set(0);
+		mMaxNanos.set(0);
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1000000.0;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter for values that are incremented by many threads at once, like
+ * lookups of cached properties. The count is spread over several cells, so
+ * threads rarely contend for the same cell; reading sums up all cells.
+ */
+final class StripedCounter {
+
+	private static final int STRIPES = 16;
+
+	/**
+	 * The number of longs between two cells, so each cell has its own cache
+	 * line.
+	 */
+	private static final int PADDING = 8;
+
+	private final AtomicLongArray mCells = new AtomicLongArray(STRIPES
+			* PADDING);
+
+	/**
+	 * Increments the counter by one.
+	 */
+	void increment() {
+		long id = Thread.currentThread().getId();
+		int stripe = (int) ((id ^ (id >>> 4)) & (STRIPES - 1));
+		mCells.incrementAndGet(stripe * PADDING);
+	}
+
+	/**
+	 * @return the current count
+	 */
+	long get() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += mCells.get(i * PADDING);
+		}
+		return sum;
+	}
+
+	/**
+	 * Sets the counter to zero.
+	 */
+	void reset() {
+		for (int i = 0; i < STRIPES; i++) {
+			mCells.set(i * PADDING, 0);
+		}
+	}
+}
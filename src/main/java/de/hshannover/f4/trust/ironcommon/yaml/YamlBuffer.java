@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.yaml;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * The content of a yml-file held outside of the Java heap. The keys and values
+ * are encoded like a {@link YamlSnapshot} into a direct {@link ByteBuffer}, so
+ * the heap holds a few objects only, no matter how many values the content
+ * has. Large {@link Map}s carry a sorted index of the hash codes of their
+ * keys. Looking up a value decodes only this value, every lookup creates new
+ * objects for it.
+ *
+ * A {@link YamlBuffer} is immutable and can be read by many threads at once.
+ */
+public final class YamlBuffer {
+
+	private final ByteBuffer mBuffer;
+
+	private YamlBuffer(ByteBuffer buffer) {
+		mBuffer = buffer;
+	}
+
+	/**
+	 * Encodes the content of a yml-file into a new direct {@link ByteBuffer}.
+	 *
+	 * @param map
+	 *            the content of the yml-file
+	 * @return the {@link YamlBuffer} or null, if the content holds values
+	 *         other than strings, numbers, booleans, {@link Map}s and
+	 *         {@link java.util.List}s
+	 */
+	public static YamlBuffer encode(Map<String, Object> map) {
+		ObjectChecks.checkForNullReference(map, "map is null");
+		byte[] data = YamlSnapshot.encode(map);
+		if (data == null) {
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+		return new YamlBuffer(buffer.asReadOnlyBuffer());
+	}
+
+	/**
+	 * Looks up a value like walking the decoded content: a value that is not
+	 * a {@link Map} is the result, even if there are more keys.
+	 *
+	 * @param keys
+	 *            the keys leading to the value
+	 * @return a new copy of the value or null, if there is no value
+	 */
+	public Object get(String... keys) {
+		ObjectChecks.checkForNullReference(keys, "keys is null");
+		return YamlSnapshot.find(mBuffer.duplicate(), keys);
+	}
+
+	/**
+	 * Decodes the whole content.
+	 *
+	 * @return a new copy of the content
+	 */
+	public Map<String, Object> toMap() {
+		return YamlSnapshot.decodeRoot(mBuffer.duplicate());
+	}
+
+	/**
+	 * @return the number of bytes held outside of the Java heap
+	 */
+	public int getByteSize() {
+		return mBuffer.capacity();
+	}
+}
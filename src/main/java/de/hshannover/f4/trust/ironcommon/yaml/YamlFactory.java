@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.yaml;
+
+import java.util.Map;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.BaseConstructor;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.representer.Representer;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Provides reusable {@link Yaml} instances for loading and dumping. A
+ * {@link Yaml} instance is not thread-safe, but it can be used for any number
+ * of subsequent loads or dumps. Every thread therefore gets its own
+ * instances, which are created once and keep their constructor, resolver and
+ * representer.
+ */
+final class YamlFactory {
+
+	private static final ThreadLocal<Yaml> LOADER = new ThreadLocal<Yaml>() {
+		@Override
+		protected Yaml initialValue() {
+			return new Yaml();
+		}
+	};
+
+	private static final ThreadLocal<Yaml> DUMPER = new ThreadLocal<Yaml>() {
+		@Override
+		protected Yaml initialValue() {
+			return new Yaml(new TreeRepresenter(), buildDumperOptions());
+		}
+	};
+
+	private static final ThreadLocal<BaseConstructor> CONSTRUCTOR = new ThreadLocal<BaseConstructor>() {
+		@Override
+		protected BaseConstructor initialValue() {
+			return new Constructor();
+		}
+	};
+
+	private static final ThreadLocal<Resolver> RESOLVER = new ThreadLocal<Resolver>() {
+		@Override
+		protected Resolver initialValue() {
+			return new Resolver();
+		}
+	};
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private YamlFactory() {
+	}
+
+	/**
+	 * @return the {@link Yaml} instance of the current thread for loading
+	 *         yml-files, it must not be passed to other threads
+	 */
+	static Yaml getLoader() {
+		return LOADER.get();
+	}
+
+	/**
+	 * @return the {@link Yaml} instance of the current thread for dumping
+	 *         yml-files, it must not be passed to other threads
+	 */
+	static Yaml getDumper() {
+		return DUMPER.get();
+	}
+
+	/**
+	 * @return the {@link BaseConstructor} of the current thread for
+	 *         constructing nodes composed outside of a {@link Yaml} instance,
+	 *         it must not be passed to other threads
+	 */
+	static BaseConstructor getConstructor() {
+		return CONSTRUCTOR.get();
+	}
+
+	/**
+	 * @return the {@link Resolver} of the current thread, it must not be
+	 *         passed to other threads
+	 */
+	static Resolver getResolver() {
+		return RESOLVER.get();
+	}
+
+	/**
+	 * @return the {@link DumperOptions} used for all yml-files
+	 */
+	static DumperOptions buildDumperOptions() {
+		DumperOptions options = new DumperOptions();
+		options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+		return options;
+	}
+
+	/**
+	 * A {@link Representer} that writes a {@link Map} or {@link Iterable}
+	 * occurring more than once in the tree at every occurrence, like a tree
+	 * loaded without aliases. Only a collection containing itself is written
+	 * with an alias. Canonicalized content shares equal subtrees, see
+	 * {@link YamlInterner}.
+	 */
+	private static final class TreeRepresenter extends Representer {
+
+		@Override
+		protected Node representSequence(Tag tag, Iterable<?> sequence,
+				Boolean flowStyle) {
+			Object data = objectToRepresent;
+			try {
+				return super.representSequence(tag, sequence, flowStyle);
+			} finally {
+				// represented again at its next occurrence
+				representedObjects.remove(data);
+			}
+		}
+
+		@Override
+		protected Node representMapping(Tag tag, Map<?, ?> mapping,
+				Boolean flowStyle) {
+			Object data = objectToRepresent;
+			try {
+				return super.representMapping(tag, mapping, flowStyle);
+			} finally {
+				representedObjects.remove(data);
+			}
+		}
+	}
+}
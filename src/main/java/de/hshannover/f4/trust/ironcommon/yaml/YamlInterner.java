@@ -0,0 +1,282 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.yaml;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canonicalizes loaded yml content, so equal content is held only once. Keys
+ * and scalar values are replaced by equal instances from a table, and with
+ * {@link #intern(Map, boolean)} structurally equal {@link Map}s and
+ * {@link List}s are replaced by a single shared instance as well. This
+ * reduces the heap used by content with many repetitions, within one file
+ * or across files and loads.
+ *
+ * The table holds at most a given number of entries, the least recently
+ * used ones are dropped first. Shared {@link Map}s and {@link List}s are
+ * also held by the table and must never be modified.
+ *
+ * An {@link YamlInterner} can be used by many threads at once.
+ */
+public final class YamlInterner {
+
+	/**
+	 * The default maximum number of entries of the table.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1 << 16;
+
+	private static final YamlInterner DEFAULT = new YamlInterner(
+			DEFAULT_MAX_SIZE);
+
+	private final Map<Object, Object> mTable;
+
+	/**
+	 * Create a {@link YamlInterner} with a bounded table.
+	 *
+	 * @param maxSize
+	 *            the maximum number of entries of the table
+	 */
+	public YamlInterner(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		mTable = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Object> e) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * @return the {@link YamlInterner} shared by the whole process
+	 */
+	public static YamlInterner getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Canonicalizes the content of a yml-file. The given {@link Map} is not
+	 * modified.
+	 *
+	 * @param map
+	 *            the loaded content
+	 * @param shareSubtrees
+	 *            if true, equal {@link Map}s and {@link List}s below the
+	 *            root are shared, so they must never be modified. Otherwise
+	 *            only keys and scalar values are shared and the returned
+	 *            content belongs to the caller.
+	 * @return a new root {@link Map} with the canonical content
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Object> intern(Map<String, Object> map,
+			boolean shareSubtrees) {
+		synchronized (mTable) {
+			// the root is returned as a new instance in any case, the caller
+			// may still hand it to a writer that takes ownership
+			return (Map<String, Object>) copy(map, shareSubtrees);
+		}
+	}
+
+	/**
+	 * @return the number of entries of the table
+	 */
+	public int getSize() {
+		synchronized (mTable) {
+			return mTable.size();
+		}
+	}
+
+	/**
+	 * Drops all entries of the table.
+	 */
+	public void clear() {
+		synchronized (mTable) {
+			mTable.clear();
+		}
+	}
+
+	private Object internValue(Object value, boolean shareSubtrees) {
+		if (value instanceof Map || value instanceof List) {
+			Object copy = copy(value, shareSubtrees);
+			return shareSubtrees ? lookup(new Shape(copy), copy) : copy;
+		} else if (isScalar(value)) {
+			return lookup(value, value);
+		}
+		return value;
+	}
+
+	private Object copy(Object value, boolean shareSubtrees) {
+		if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			// the order of the keys is kept for dumping the content
+			Map<Object, Object> copy = new LinkedHashMap<Object, Object>(
+					(int) (map.size() / 0.75f) + 1);
+			for (Map.Entry<?, ?> e : map.entrySet()) {
+				copy.put(internValue(e.getKey(), shareSubtrees),
+						internValue(e.getValue(), shareSubtrees));
+			}
+			return copy;
+		}
+		List<?> list = (List<?>) value;
+		List<Object> copy = new ArrayList<Object>(list.size());
+		for (Object o : list) {
+			copy.add(internValue(o, shareSubtrees));
+		}
+		return copy;
+	}
+
+	private Object lookup(Object key, Object value) {
+		Object canonical = mTable.get(key);
+		if (canonical == null) {
+			mTable.put(key, value);
+			canonical = value;
+		}
+		return canonical;
+	}
+
+	private static boolean isScalar(Object value) {
+		return value instanceof String || value instanceof Integer
+				|| value instanceof Long || value instanceof Double
+				|| value instanceof Boolean || value instanceof BigInteger;
+	}
+
+	/**
+	 * The key of a {@link Map} or {@link List} in the table. Its entries are
+	 * canonical already, so nested {@link Map}s and {@link List}s are
+	 * compared by identity and the hash code is computed without descending
+	 * into them. {@link Map}s are only equal with the same order of their
+	 * keys, so a shared {@link Map} keeps the order of every file using it.
+	 */
+	private static final class Shape {
+
+		private final Object mValue;
+
+		private final int mHash;
+
+		private Shape(Object value) {
+			mValue = value;
+			int hash = 1;
+			if (value instanceof Map) {
+				for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+					hash = 31 * hash
+							+ (hash(e.getKey()) ^ hash(e.getValue()));
+				}
+			} else {
+				for (Object o : (List<?>) value) {
+					hash = 31 * hash + hash(o);
+				}
+			}
+			mHash = value instanceof Map ? hash : ~hash;
+		}
+
+		private static int hash(Object value) {
+			if (value instanceof Map || value instanceof List) {
+				return System.identityHashCode(value);
+			}
+			return value == null ? 0 : value.hashCode();
+		}
+
+		private static boolean same(Object a, Object b) {
+			if (a instanceof Map || a instanceof List) {
+				return a == b;
+			}
+			return a == null ? b == null : a.equals(b)
+					&& a.getClass() == b.getClass();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Shape)) {
+				return false;
+			}
+			Shape other = (Shape) o;
+			if (mHash != other.mHash) {
+				return false;
+			}
+			if (mValue instanceof Map) {
+				if (!(other.mValue instanceof Map)) {
+					return false;
+				}
+				Map<?, ?> map = (Map<?, ?>) mValue;
+				Map<?, ?> otherMap = (Map<?, ?>) other.mValue;
+				if (map.size() != otherMap.size()) {
+					return false;
+				}
+				Iterator<? extends Map.Entry<?, ?>> others = otherMap
+						.entrySet().iterator();
+				for (Map.Entry<?, ?> e : map.entrySet()) {
+					Map.Entry<?, ?> otherEntry = others.next();
+					if (!same(e.getKey(), otherEntry.getKey())
+							|| !same(e.getValue(), otherEntry.getValue())) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if (!(other.mValue instanceof List)) {
+				return false;
+			}
+			List<?> list = (List<?>) mValue;
+			List<?> otherList = (List<?>) other.mValue;
+			if (list.size() != otherList.size()) {
+				return false;
+			}
+			for (int i = 0; i < list.size(); i++) {
+				if (!same(list.get(i), otherList.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+	}
+}
@@ -0,0 +1,389 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.yaml;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * An append-only journal of changed values beside a yml-file. Instead of
+ * writing the whole yml-file, a change appends a small record to the journal
+ * ".&lt;name&gt;.journal" and forces it to the storage device. The content of
+ * the yml-file is the content of the file with all records of the journal
+ * applied in order, see {@link #replay(String, Map)}. {@link #compact(String)}
+ * writes this content to the yml-file and deletes the journal.
+ *
+ * Every record holds the changes of one {@link #append(String, List)} call,
+ * encoded like a {@link YamlSnapshot} and protected by a checksum. A record
+ * that was not completely written when the process crashed is ignored and
+ * overwritten by the next append. Applying a record again is harmless, so a
+ * crash during the compaction loses nothing. A writer that replaces the whole
+ * yml-file with a content that already contains the records has to
+ * {@link #delete(String)} the journal.
+ */
+public final class YamlJournal {
+
+	private static final int MAGIC = 0x49434a4c;
+
+	private static final byte VERSION = 1;
+
+	private static final int HEADER_SIZE = 4 + 1;
+
+	private static final int RECORD_HEADER_SIZE = 4 + 8;
+
+	/**
+	 * The length of the valid records of the journals written by this
+	 * process, a journal of another length is checked before appending.
+	 */
+	private static final ConcurrentMap<Path, Long> VALID_LENGTHS = new ConcurrentHashMap<Path, Long>();
+
+	private static Logger mLogger = Logger.getLogger(YamlJournal.class);
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private YamlJournal() {
+	}
+
+	/**
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @return the path of the journal of the yml-file
+	 */
+	public static Path getJournalPath(String fileName) {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+		Path file = Paths.get(fileName).toAbsolutePath().normalize();
+		return file.resolveSibling("." + file.getFileName() + ".journal");
+	}
+
+	/**
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @return true, if the yml-file has a journal that is not compacted yet
+	 */
+	public static boolean exists(String fileName) {
+		return Files.exists(getJournalPath(fileName));
+	}
+
+	/**
+	 * Appends changed values to the journal of a yml-file as one record. When
+	 * this method returns, the record is on the storage device.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param changes
+	 *            the keys leading from the root mapping to a value and the new
+	 *            value, applied in the given order
+	 * @return false, if a value can not be journaled, the yml-file has to be
+	 *         written then
+	 * @throws IOException
+	 *             if the journal could not be written
+	 */
+	public static boolean append(String fileName,
+			List<Map.Entry<String[], Object>> changes) throws IOException {
+		ObjectChecks.checkForNullReference(changes, "changes is null");
+		List<Object> records = new ArrayList<Object>(changes.size());
+		for (Map.Entry<String[], Object> change : changes) {
+			records.add(Arrays.asList(Arrays.asList(change.getKey()),
+					change.getValue()));
+		}
+		byte[] payload = YamlSnapshot.encode(records);
+		if (payload == null) {
+			return false;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE
+				+ payload.length);
+		record.putInt(payload.length).putLong(crc.getValue()).put(payload);
+		record.flip();
+
+		FileMetrics metrics = FileMetrics.getMetrics(fileName);
+		Path journal = getJournalPath(fileName);
+		Lock lock = FileLocks.lockForWriting(fileName, metrics);
+		try {
+			long start = System.nanoTime();
+			boolean created = !Files.exists(journal);
+			FileChannel channel = FileChannel.open(journal,
+					StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			try {
+				long length = channel.size();
+				Long valid = VALID_LENGTHS.get(journal);
+				if (length > 0 && (valid == null || valid != length)) {
+					// drop a record that was not completely written
+					length = validLength(channel, journal);
+					channel.truncate(length);
+				}
+				if (length == 0) {
+					ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+					header.putInt(MAGIC).put(VERSION).flip();
+					write(channel, header, 0);
+					length = HEADER_SIZE;
+				}
+				int size = record.remaining();
+				write(channel, record, length);
+				channel.force(true);
+				VALID_LENGTHS.put(journal, length + size);
+				metrics.recordWrite(System.nanoTime() - start, size);
+			} finally {
+				channel.close();
+			}
+			if (created) {
+				YamlWriter.syncDirectory(journal.getParent());
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer,
+			long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Applies all records of the journal of a yml-file to its loaded content.
+	 * The caller has to hold the read or write lock of the yml-file, see
+	 * {@link FileLocks}, from loading the yml-file until the records are
+	 * applied.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param map
+	 *            the loaded content of the yml-file, it is changed
+	 * @return the number of changes applied
+	 * @throws IOException
+	 *             if the journal could not be read
+	 */
+	public static int replay(String fileName, Map<String, Object> map)
+			throws IOException {
+		ObjectChecks.checkForNullReference(map, "map is null");
+		List<Map.Entry<String[], Object>> changes = read(fileName);
+		for (Map.Entry<String[], Object> change : changes) {
+			apply(map, change.getKey(), change.getValue());
+		}
+		return changes.size();
+	}
+
+	/**
+	 * Writes the content of a yml-file with all records of its journal
+	 * applied to the yml-file and deletes the journal. Only the changed values
+	 * are replaced in the text of the yml-file if possible, see
+	 * {@link YamlWriter#persist(String, Object, List, boolean)}.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @return true, if there was a journal
+	 * @throws IOException
+	 *             if the yml-file or the journal could not be read or written
+	 */
+	public static boolean compact(String fileName) throws IOException {
+		Lock lock = FileLocks.lockForWriting(fileName,
+				FileMetrics.getMetrics(fileName));
+		try {
+			List<Map.Entry<String[], Object>> changes = read(fileName);
+			if (changes.isEmpty()) {
+				return delete(fileName);
+			}
+			Map<String, Object> map = YamlReader.loadMap(fileName);
+			for (Map.Entry<String[], Object> change : changes) {
+				apply(map, change.getKey(), change.getValue());
+			}
+			// the records must not be lost before the file is written. The
+			// writer only keeps a patched text that is parsed to the map,
+			// otherwise it dumps the map.
+			YamlWriter.persist(fileName, map, changes, true);
+			delete(fileName);
+			mLogger.debug("Compacted " + changes.size()
+					+ " journaled changes into " + fileName);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes the journal of a yml-file without applying it.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @return true, if there was a journal
+	 * @throws IOException
+	 *             if the journal could not be deleted
+	 */
+	public static boolean delete(String fileName) throws IOException {
+		Path journal = getJournalPath(fileName);
+		VALID_LENGTHS.remove(journal);
+		return Files.deleteIfExists(journal);
+	}
+
+	/**
+	 * @return the changes of all complete records of the journal
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Map.Entry<String[], Object>> read(String fileName)
+			throws IOException {
+		List<Map.Entry<String[], Object>> changes = new ArrayList<Map.Entry<String[], Object>>();
+		byte[] data;
+		try {
+			data = Files.readAllBytes(getJournalPath(fileName));
+		} catch (NoSuchFileException e) {
+			return changes;
+		}
+		FileMetrics.getMetrics(fileName).recordRead(data.length);
+
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		if (!hasHeader(buffer)) {
+			return changes;
+		}
+		byte[] payload;
+		while ((payload = nextRecord(buffer)) != null) {
+			List<Object> records = (List<Object>) YamlSnapshot
+					.decode(ByteBuffer.wrap(payload));
+			for (Object record : records) {
+				List<Object> change = (List<Object>) record;
+				List<String> keys = (List<String>) change.get(0);
+				changes.add(new SimpleImmutableEntry<String[], Object>(keys
+						.toArray(new String[keys.size()]), change.get(1)));
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * @return the length of the header and all complete records
+	 */
+	private static long validLength(FileChannel channel, Path journal)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+		while (buffer.hasRemaining()
+				&& channel.read(buffer, buffer.position()) >= 0) {
+			// read all
+		}
+		buffer.flip();
+		if (!hasHeader(buffer)) {
+			mLogger.warn("Dropping the unreadable journal " + journal);
+			return 0;
+		}
+		while (nextRecord(buffer) != null) {
+			// skip all complete records
+		}
+		return buffer.position();
+	}
+
+	private static boolean hasHeader(ByteBuffer buffer) {
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC
+				|| buffer.get() != VERSION) {
+			buffer.position(0);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the payload of the next complete record or null, the buffer is
+	 *         positioned after the last complete record then
+	 */
+	private static byte[] nextRecord(ByteBuffer buffer) {
+		int start = buffer.position();
+		if (buffer.remaining() < RECORD_HEADER_SIZE) {
+			return null;
+		}
+		int length = buffer.getInt();
+		long checksum = buffer.getLong();
+		if (length < 0 || buffer.remaining() < length) {
+			buffer.position(start);
+			return null;
+		}
+		byte[] payload = new byte[length];
+		buffer.get(payload);
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, length);
+		if (crc.getValue() != checksum) {
+			buffer.position(start);
+			return null;
+		}
+		return payload;
+	}
+
+	/**
+	 * Stores a value like {@code Properties.set} does: missing maps on the way
+	 * are created, values that are not maps are replaced by maps.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void apply(Map<String, Object> map, String[] keys,
+			Object value) {
+		Map<String, Object> parent = map;
+		for (int i = 0; i < keys.length - 1; i++) {
+			Object child = parent.get(keys[i]);
+			if (!(child instanceof Map)) {
+				child = new HashMap<String, Object>();
+				parent.put(keys[i], child);
+			}
+			parent = (Map<String, Object>) child;
+		}
+		parent.put(keys[keys.length - 1], value);
+	}
+}
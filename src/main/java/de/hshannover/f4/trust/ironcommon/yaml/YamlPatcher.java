@@ -0,0 +1,452 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.yaml;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Changes values of a yml-file in its text instead of dumping the whole
+ * content again. The values are located with the marks of the parser events,
+ * only their text is replaced; comments, formatting and the order of all
+ * other parts stay as they are.
+ *
+ * Only values of existing keys in block mappings can be replaced. The text is
+ * not patched, and the caller has to dump the whole content, if a key does
+ * not exist yet, a mapping on the way is in flow style, a key is duplicated,
+ * the file contains aliases or merge keys or a value can not be written on a
+ * single line or as a block. A patched text that is not parsed to the
+ * expected content is never returned either.
+ */
+final class YamlPatcher {
+
+	private final String mText;
+
+	private final Parser mParser;
+
+	private final Resolver mResolver;
+
+	/**
+	 * The changes that are still looked for, by their keys.
+	 */
+	private final Map<List<String>, Target> mTargets = new LinkedHashMap<List<String>, Target>();
+
+	/**
+	 * Thrown when the text can not be patched.
+	 */
+	private static final class Fallback extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		private Fallback() {
+			super(null, null, false, false);
+		}
+	}
+
+	private static final Fallback FALLBACK = new Fallback();
+
+	/**
+	 * A value to be replaced and where it was found.
+	 */
+	private static final class Target {
+
+		private final String[] mKeys;
+
+		private final Object mValue;
+
+		private int mKeyColumn;
+
+		private int mColon = -1;
+
+		private int mStart;
+
+		private int mEnd;
+
+		private boolean mInline;
+
+		private Target(String[] keys, Object value) {
+			mKeys = keys;
+			mValue = value;
+		}
+	}
+
+	private YamlPatcher(String text) {
+		mText = text;
+		mParser = new ParserImpl(new StreamReader(new StringReader(text)));
+		mResolver = YamlFactory.getResolver();
+	}
+
+	/**
+	 * Replaces values in the text of a yml-file.
+	 *
+	 * @param text
+	 *            the content of the yml-file
+	 * @param expected
+	 *            the content of the yml-file with the changes applied, the
+	 *            patched text has to be parsed to it
+	 * @param changes
+	 *            the keys leading from the root mapping to a value and the new
+	 *            value, applied in the given order
+	 * @return the patched text or null, if the whole content has to be dumped
+	 */
+	static String patch(String text, Object expected,
+			List<Map.Entry<String[], Object>> changes) {
+		if (changes.isEmpty() || text.isEmpty() || text.charAt(0) == '\uFEFF'
+				|| hasSurrogates(text)) {
+			// the marks of the parser count the characters of the text
+			return null;
+		}
+		YamlPatcher patcher = new YamlPatcher(text);
+		for (Map.Entry<String[], Object> change : changes) {
+			String[] keys = change.getKey();
+			if (keys.length == 0) {
+				return null;
+			}
+			// the last change of a value wins
+			List<String> path = Arrays.asList(keys);
+			patcher.mTargets.remove(path);
+			patcher.mTargets.put(path, new Target(keys, change.getValue()));
+		}
+		try {
+			String patched = patcher.patch();
+			// the splices are checked one by one, the whole text must still
+			// stand for exactly the expected content
+			Object loaded = YamlFactory.getLoader().load(patched);
+			return expected.equals(loaded) ? patched : null;
+		} catch (Fallback | YAMLException e) {
+			return null;
+		}
+	}
+
+	private static boolean hasSurrogates(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (Character.isSurrogate(text.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String patch() throws Fallback {
+		List<Target> targets = new ArrayList<Target>(mTargets.values());
+		Set<List<String>> paths = mTargets.keySet();
+		for (Target target : targets) {
+			for (int i = 1; i < target.mKeys.length; i++) {
+				if (paths.contains(Arrays.asList(target.mKeys).subList(0, i))) {
+					// a value and a value inside of it are changed
+					throw FALLBACK;
+				}
+			}
+		}
+
+		expect(Event.ID.StreamStart);
+		expect(Event.ID.DocumentStart);
+		if (!isBlock(mParser.peekEvent(), Event.ID.MappingStart)) {
+			throw FALLBACK;
+		}
+		walkMapping(0, targets);
+		expect(Event.ID.DocumentEnd);
+		expect(Event.ID.StreamEnd);
+
+		for (Target target : targets) {
+			if (target.mColon < 0) {
+				// a new key
+				throw FALLBACK;
+			}
+		}
+
+		// splice from the end, so the marks of the other targets stay valid
+		Collections.sort(targets, new Comparator<Target>() {
+			@Override
+			public int compare(Target a, Target b) {
+				return Integer.compare(b.mStart, a.mStart);
+			}
+		});
+		StringBuilder sb = new StringBuilder(mText);
+		for (Target target : targets) {
+			splice(sb, target);
+		}
+		return sb.toString();
+	}
+
+	private void expect(Event.ID id) throws Fallback {
+		if (!mParser.getEvent().is(id)) {
+			throw FALLBACK;
+		}
+	}
+
+	private static boolean isBlock(Event event, Event.ID id) {
+		return event.is(id)
+				&& !Boolean.TRUE.equals(((CollectionStartEvent) event)
+						.getFlowStyle());
+	}
+
+	/**
+	 * Walks the block mapping the parser is positioned at and records where
+	 * the values of the targets are.
+	 *
+	 * @param depth
+	 *            the number of keys leading to the mapping
+	 * @param targets
+	 *            the targets whose first keys lead to the mapping, may be
+	 *            empty
+	 */
+	private void walkMapping(int depth, List<Target> targets) throws Fallback {
+		mParser.getEvent();
+		Set<String> seen = new HashSet<String>();
+		while (!mParser.checkEvent(Event.ID.MappingEnd)) {
+			Event key = mParser.getEvent();
+			List<Target> matching = Collections.emptyList();
+			if (key.is(Event.ID.Scalar)) {
+				ScalarEvent scalar = (ScalarEvent) key;
+				Tag tag = resolve(scalar);
+				if (Tag.MERGE.equals(tag)) {
+					throw FALLBACK;
+				} else if (Tag.STR.equals(tag)) {
+					matching = matching(targets, depth, scalar.getValue());
+				}
+				if (!matching.isEmpty() && !seen.add(scalar.getValue())) {
+					// duplicate keys, the last one wins
+					throw FALLBACK;
+				}
+			} else {
+				skipRest(key);
+			}
+
+			if (matching.isEmpty()) {
+				skip();
+			} else if (matching.get(0).mKeys.length == depth + 1) {
+				locate(matching.get(0), key);
+			} else if (isBlock(mParser.peekEvent(), Event.ID.MappingStart)) {
+				walkMapping(depth + 1, matching);
+			} else {
+				// the value becomes a mapping
+				throw FALLBACK;
+			}
+		}
+		mParser.getEvent();
+	}
+
+	private static List<Target> matching(List<Target> targets, int depth,
+			String key) {
+		List<Target> matching = new ArrayList<Target>();
+		for (Target target : targets) {
+			if (target.mKeys[depth].equals(key)) {
+				matching.add(target);
+			}
+		}
+		return matching;
+	}
+
+	private Tag resolve(ScalarEvent scalar) {
+		String tag = scalar.getTag();
+		if (tag == null || "!".equals(tag)) {
+			return mResolver.resolve(NodeId.scalar, scalar.getValue(), scalar
+					.getImplicit().canOmitTagInPlainScalar());
+		}
+		return new Tag(tag);
+	}
+
+	/**
+	 * Records the position of the value the parser is positioned at and
+	 * consumes it.
+	 *
+	 * @param key
+	 *            the event of the key of the value
+	 */
+	private void locate(Target target, Event key) throws Fallback {
+		// the value indicator follows the key on the same line
+		int colon = key.getEndMark().getIndex();
+		while (colon < mText.length() && mText.charAt(colon) == ' ') {
+			colon++;
+		}
+		if (colon >= mText.length() || mText.charAt(colon) != ':') {
+			throw FALLBACK;
+		}
+		target.mKeyColumn = key.getStartMark().getColumn();
+		target.mColon = colon;
+
+		Event value = mParser.peekEvent();
+		target.mStart = value.getStartMark().getIndex();
+		if (value.is(Event.ID.Scalar)) {
+			Character style = ((ScalarEvent) value).getStyle();
+			if (style != null && (style == '|' || style == '>')) {
+				// block scalars end after the following line breaks
+				throw FALLBACK;
+			}
+			target.mEnd = value.getEndMark().getIndex();
+		} else {
+			target.mEnd = skipToEnd();
+			return;
+		}
+		mParser.getEvent();
+		target.mInline = mText.lastIndexOf('\n', target.mStart) < colon;
+	}
+
+	/**
+	 * Consumes the node the parser is positioned at.
+	 *
+	 * @return the index after the last character of the node, not counting
+	 *         the line breaks and comments that end a block collection
+	 */
+	private int skipToEnd() throws Fallback {
+		int end = -1;
+		List<Boolean> flow = new ArrayList<Boolean>();
+		do {
+			Event event = mParser.getEvent();
+			if (event.is(Event.ID.Alias)) {
+				throw FALLBACK;
+			} else if (event.is(Event.ID.MappingStart)
+					|| event.is(Event.ID.SequenceStart)) {
+				flow.add(Boolean.TRUE.equals(((CollectionStartEvent) event)
+						.getFlowStyle()));
+			} else if (event.is(Event.ID.MappingEnd)
+					|| event.is(Event.ID.SequenceEnd)) {
+				if (flow.remove(flow.size() - 1)) {
+					end = event.getEndMark().getIndex();
+				}
+			} else if (event.is(Event.ID.Scalar)) {
+				Character style = ((ScalarEvent) event).getStyle();
+				if (style != null && (style == '|' || style == '>')) {
+					throw FALLBACK;
+				}
+				end = event.getEndMark().getIndex();
+			}
+		} while (!flow.isEmpty());
+		return end;
+	}
+
+	/**
+	 * Consumes the node the parser is positioned at.
+	 */
+	private void skip() throws Fallback {
+		skipRest(mParser.getEvent());
+	}
+
+	/**
+	 * Consumes the rest of a node whose first event was already consumed.
+	 * Aliases are not allowed anywhere: the value of their anchor may be
+	 * replaced.
+	 */
+	private void skipRest(Event first) throws Fallback {
+		Event event = first;
+		int depth = 0;
+		while (true) {
+			if (event.is(Event.ID.Alias)) {
+				throw FALLBACK;
+			} else if (event.is(Event.ID.MappingStart)
+					|| event.is(Event.ID.SequenceStart)) {
+				depth++;
+			} else if (event.is(Event.ID.MappingEnd)
+					|| event.is(Event.ID.SequenceEnd)) {
+				depth--;
+			} else if (event.is(Event.ID.Scalar)
+					&& Tag.MERGE.equals(resolve((ScalarEvent) event))) {
+				throw FALLBACK;
+			}
+			if (depth == 0) {
+				return;
+			}
+			event = mParser.getEvent();
+		}
+	}
+
+	/**
+	 * Replaces the text of the value of a target.
+	 */
+	private static void splice(StringBuilder sb, Target target)
+			throws Fallback {
+		Yaml yaml = YamlFactory.getDumper();
+		String text = yaml.dump(target.mValue);
+		// the text must stand for exactly the value
+		Object loaded = YamlFactory.getLoader().load(text);
+		if (loaded == null || !loaded.equals(target.mValue)) {
+			throw FALLBACK;
+		}
+		text = text.substring(0, text.length() - 1);
+
+		// empty collections are written in flow style
+		boolean block = target.mValue instanceof Map
+				&& !((Map<?, ?>) target.mValue).isEmpty()
+				|| target.mValue instanceof List
+				&& !((List<?>) target.mValue).isEmpty();
+		if (!block && (text.indexOf('\n') >= 0 || text.startsWith("|")
+				|| text.startsWith(">"))) {
+			// a multi-line scalar
+			throw FALLBACK;
+		}
+
+		if (!block && target.mInline && target.mStart < target.mEnd) {
+			sb.replace(target.mStart, target.mEnd, text);
+		} else if (!block) {
+			// an empty value starts right after the colon and needs the
+			// separating space as well
+			sb.replace(target.mColon + 1, target.mEnd, " " + text);
+		} else {
+			// block sequences are not indented below their key, like the
+			// dumper writes them
+			char[] spaces = new char[target.mKeyColumn
+					+ (target.mValue instanceof Map ? 2 : 0)];
+			Arrays.fill(spaces, ' ');
+			String indent = "\n" + new String(spaces);
+			sb.replace(target.mColon + 1, target.mEnd,
+					indent + text.replace("\n", indent));
+		}
+	}
+}
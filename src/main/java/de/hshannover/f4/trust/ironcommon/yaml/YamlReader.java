@@ -38,21 +38,26 @@
  */
 package de.hshannover.f4.trust.ironcommon.yaml;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.log4j.Logger;
 import org.yaml.snakeyaml.Yaml;
 
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
 import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
 
 /**
- * Class that encapsulates reading of YAML-files.
+ * Class that encapsulates reading of YAML-files. Files are read as UTF-8.
  *
  * @author Marcel Reichenbach
  */
@@ -85,18 +90,112 @@ public final class YamlReader {
 	 *             exist) or the given filename is a directory.
 	 */
 	@SuppressWarnings("unchecked")
-	public static synchronized <T> T loadAs(String fileName, Class<T> clazz)
+	public static <T> T loadAs(String fileName, Class<T> clazz)
 			throws IOException {
 		ObjectChecks.checkForNullReference(fileName, "fileName is null");
 		ObjectChecks.checkForNullReference(clazz, "clazz is null");
 
-		FileReader fileReader = null;
-		File f = null;
+		// readers of the same file proceed in parallel, YamlWriter replaces
+		// the file under the write lock
+		FileMetrics metrics = FileMetrics.getMetrics(fileName);
+		Lock lock = lockForReading(fileName, metrics);
+		try {
+			long start = System.nanoTime();
+			Reader fileReader = openOrCreate(fileName);
+			Yaml yaml = YamlFactory.getLoader();
+			Object data;
+			try {
+				data = yaml.loadAs(fileReader, clazz);
+			} finally {
+				fileReader.close();
+			}
+			metrics.recordParse(System.nanoTime() - start,
+					new File(fileName).length());
+			return (T) data;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Loads a single value of a yml-file whose content is a {@link Map},
+	 * without loading the whole file. The parser skips all subtrees that are
+	 * not on the way to the value, only the value itself is constructed. If
+	 * the file does not exist, it is newly created.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param keys
+	 *            the keys leading from the root {@link Map} to the value, if
+	 *            empty, the whole {@link Map} is returned
+	 * @return the value or null, if the keys do not point to a value. If a
+	 *         key points to a value that is not a {@link Map}, this value is
+	 *         returned.
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Object loadValue(String fileName, String... keys)
+			throws IOException {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+		ObjectChecks.checkForNullReference(keys, "keys is null");
+		if (keys.length == 0) {
+			return loadMap(fileName);
+		}
+
+		Object value;
+		FileMetrics metrics = FileMetrics.getMetrics(fileName);
+		Lock lock = lockForReading(fileName, metrics);
+		try {
+			long start = System.nanoTime();
+			Reader fileReader = openOrCreate(fileName);
+			try {
+				value = new YamlSubtreeReader(fileReader).find(keys);
+			} finally {
+				fileReader.close();
+			}
+			metrics.recordParse(System.nanoTime() - start,
+					new File(fileName).length());
+		} finally {
+			lock.unlock();
+		}
+
+		if (value != YamlSubtreeReader.FALLBACK) {
+			return value;
+		}
 
+		mLogger.debug("File: " + fileName
+				+ " uses aliases or merge keys, load the whole file.");
+		value = loadMap(fileName);
+		for (String key : keys) {
+			if (!(value instanceof Map)) {
+				break;
+			}
+			value = ((Map<String, Object>) value).get(key);
+		}
+		return value;
+	}
+
+	/**
+	 * Acquires the read lock of a file, see {@link FileLocks}, and records the
+	 * time waited for it.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param metrics
+	 *            the {@link FileMetrics} of the file
+	 * @return the acquired read lock
+	 */
+	static Lock lockForReading(String fileName, FileMetrics metrics) {
+		return FileLocks.lockForReading(fileName, metrics);
+	}
+
+	private static Reader openOrCreate(String fileName) throws IOException {
 		try {
-			fileReader = new FileReader(fileName);
+			return open(fileName);
 		} catch (FileNotFoundException e) {
-			f = new File(fileName);
+			File f = new File(fileName);
 			if (f.isDirectory()) {
 				throw new IOException(fileName + " is a directory");
 			} else if (f.isFile()) {
@@ -107,27 +206,27 @@ public final class YamlReader {
 						+ fileName
 						+ " doesn't exist and it's not a directory, try to create it.");
 				// If it doens't exist and it's not a directory, try to create
-				// it.
+				// it. Creating it exclusively needs no write lock, if another
+				// thread was faster its file is used.
 				try {
-					new FileWriter(fileName).close();
+					f.createNewFile();
 				} catch (IOException ee) {
 					throw new IOException("Could not create " + fileName + ": "
 							+ ee.getMessage());
 				}
 				try {
-					fileReader = new FileReader(fileName);
+					return open(fileName);
 				} catch (IOException ee) {
 					throw new IOException("Could not open " + fileName + ": "
 							+ ee.getMessage());
 				}
 			}
 		}
+	}
 
-		Yaml yaml = new Yaml();
-		Object data = yaml.loadAs(fileReader, clazz);
-
-		fileReader.close();
-		return (T) data;
+	private static Reader open(String fileName) throws FileNotFoundException {
+		return new InputStreamReader(new FileInputStream(fileName),
+				YamlWriter.CHARSET);
 	}
 
 	/**
@@ -152,4 +251,24 @@ public final class YamlReader {
 		return ymlMap;
 	}
 
+	/**
+	 * Parses the content of a yml-file like {@link #loadMap(String)}.
+	 *
+	 * @param content
+	 *            the content of a yml-file
+	 * @return a {@link Map} with the content. If the content is empty, a empty
+	 *         {@link Map} is returned.
+	 */
+	@SuppressWarnings("unchecked")
+	static Map<String, Object> parseMap(byte[] content) {
+		Yaml yaml = YamlFactory.getLoader();
+		Map<String, Object> ymlMap = yaml.loadAs(new InputStreamReader(
+				new ByteArrayInputStream(content), YamlWriter.CHARSET),
+				HashMap.class);
+		if (ymlMap == null) {
+			return new HashMap<String, Object>();
+		}
+		return ymlMap;
+	}
+
 }
@@ -0,0 +1,817 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.yaml;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
+import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
+
+/**
+ * Class that loads yml-files through a compiled snapshot.
+ *
+ * The snapshot is a binary encoding of the {@link Map} of a yml-file, stored
+ * beside it as hidden file with the suffix ".snapshot". It carries the size
+ * and the checksum of the yml-file it was compiled from. As long as both
+ * match, the snapshot is read instead of parsing the yml-file; otherwise the
+ * yml-file is parsed and the snapshot is compiled again. Large snapshots are
+ * memory-mapped, small ones are read into the heap. Recently read snapshots
+ * are kept, so loading an unchanged yml-file again neither maps nor reads its
+ * snapshot. A yml-file containing values other than strings, numbers, booleans,
+ * {@link Map}s and {@link List}s gets no snapshot and is always parsed.
+ *
+ * Looking up a single value decodes only this value. The entries of other
+ * {@link Map}s on the way are skipped by their byte size; large {@link Map}s
+ * carry a sorted index of the hash codes of their keys, which is searched
+ * instead.
+ */
+public final class YamlSnapshot {
+
+	private static final int MAGIC = 0x49435350;
+
+	private static final byte VERSION = 2;
+
+	private static final int HEADER_SIZE = 4 + 1 + 8 + 8;
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte INTEGER = 2;
+
+	private static final byte LONG = 3;
+
+	private static final byte BIG_INTEGER = 4;
+
+	private static final byte DOUBLE = 5;
+
+	private static final byte TRUE = 6;
+
+	private static final byte FALSE = 7;
+
+	private static final byte MAP = 8;
+
+	private static final byte LIST = 9;
+
+	private static final byte INDEXED_MAP = 10;
+
+	/**
+	 * {@link Map}s with at least this many entries get an index of the hash
+	 * codes of their keys, so a key is found with a binary search.
+	 */
+	private static final int INDEX_THRESHOLD = 8;
+
+	/**
+	 * Snapshots larger than this are memory-mapped, smaller ones are read
+	 * into the heap.
+	 */
+	private static final int MAP_THRESHOLD = 64 * 1024;
+
+	/**
+	 * The maximum number of snapshots kept, the cache is cleared when it is
+	 * exceeded.
+	 */
+	private static final int MAX_CACHED_SNAPSHOTS = 64;
+
+	private static final ConcurrentMap<Path, CachedSnapshot> SNAPSHOTS =
+			new ConcurrentHashMap<Path, CachedSnapshot>();
+
+	private static Logger mLogger = Logger.getLogger(YamlSnapshot.class);
+
+	/**
+	 * Only static calls are allowed.
+	 */
+	private YamlSnapshot() {
+	}
+
+	/**
+	 * Loads a yml-File as {@link Map} like {@link YamlReader#loadMap(String)},
+	 * but reads the snapshot instead of parsing the file, if the snapshot is
+	 * up to date.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @return a {@link Map} with the content of the yml-file. If the file
+	 *         exists but is empty, a empty {@link Map} is returned.
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> loadMap(String fileName)
+			throws IOException {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+		return (Map<String, Object>) load(fileName, new String[0]);
+	}
+
+	/**
+	 * Loads a single value of a yml-file like
+	 * {@link YamlReader#loadValue(String, String...)}. If the snapshot is up to
+	 * date, only the value is decoded, the rest of the snapshot is skipped.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param keys
+	 *            the keys leading from the root {@link Map} to the value, if
+	 *            empty, the whole {@link Map} is returned
+	 * @return the value or null, if the keys do not point to a value. If a
+	 *         key points to a value that is not a {@link Map}, this value is
+	 *         returned.
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	public static Object loadValue(String fileName, String... keys)
+			throws IOException {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+		ObjectChecks.checkForNullReference(keys, "keys is null");
+		return load(fileName, keys);
+	}
+
+	/**
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @return the path of the snapshot of the yml-file
+	 */
+	static Path getSnapshotPath(String fileName) {
+		Path file = Paths.get(fileName).toAbsolutePath();
+		return file.resolveSibling("." + file.getFileName() + ".snapshot");
+	}
+
+	private static Object load(String fileName, String[] keys)
+			throws IOException {
+		Path file = Paths.get(fileName);
+		FileMetrics metrics = FileMetrics.getMetrics(fileName);
+		Lock lock = YamlReader.lockForReading(fileName, metrics);
+		try {
+			byte[] content;
+			try {
+				content = Files.readAllBytes(file);
+			} catch (IOException e) {
+				// missing files are created, all other problems are reported
+				// by the YamlReader
+				mLogger.debug("File: " + fileName
+						+ " could not be read, load it without snapshot.");
+				return keys.length == 0 ? YamlReader.loadMap(fileName)
+						: YamlReader.loadValue(fileName, keys);
+			}
+
+			Path snapshot = getSnapshotPath(fileName);
+			long checksum = checksum(content);
+			metrics.recordRead(content.length);
+			ByteBuffer buffer = snapshot(snapshot, content.length, checksum,
+					metrics);
+			if (buffer != null) {
+				try {
+					return keys.length == 0 ? decodeRoot(buffer) : find(buffer,
+							keys);
+				} catch (RuntimeException e) {
+					mLogger.warn("Snapshot " + snapshot + " is corrupt: " + e);
+					SNAPSHOTS.remove(snapshot);
+				}
+			}
+
+			long start = System.nanoTime();
+			Map<String, Object> map = YamlReader.parseMap(content);
+			metrics.recordParse(System.nanoTime() - start, 0);
+			store(file, snapshot, map, content.length, checksum);
+			return keys.length == 0 ? map : walk(map, keys);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static long checksum(byte[] content) {
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		return crc.getValue();
+	}
+
+	/**
+	 * Returns the snapshot, if it belongs to the given content of the
+	 * yml-file. A snapshot that is not cached yet is read and cached.
+	 *
+	 * @return the snapshot positioned at the root value or null
+	 */
+	private static ByteBuffer snapshot(Path snapshot, long length,
+			long checksum, FileMetrics metrics) {
+		CachedSnapshot cached = SNAPSHOTS.get(snapshot);
+		if (cached == null || !cached.belongsTo(length, checksum)) {
+			ByteBuffer buffer = read(snapshot, length, checksum);
+			if (buffer == null) {
+				return null;
+			}
+			metrics.recordRead(buffer.capacity());
+			cached = cache(snapshot, buffer, length, checksum);
+		}
+		// every user gets its own position
+		return cached.mBuffer.duplicate();
+	}
+
+	private static CachedSnapshot cache(Path snapshot, ByteBuffer buffer,
+			long length, long checksum) {
+		CachedSnapshot cached = new CachedSnapshot(buffer, length, checksum);
+		if (SNAPSHOTS.size() >= MAX_CACHED_SNAPSHOTS) {
+			SNAPSHOTS.clear();
+		}
+		SNAPSHOTS.put(snapshot, cached);
+		return cached;
+	}
+
+	/**
+	 * Reads the snapshot, if it belongs to the given content of the
+	 * yml-file. Large snapshots are mapped into memory.
+	 *
+	 * @return the snapshot positioned at the root value or null
+	 */
+	private static ByteBuffer read(Path snapshot, long length, long checksum) {
+		try {
+			FileChannel channel = FileChannel.open(snapshot,
+					StandardOpenOption.READ);
+			try {
+				long size = channel.size();
+				if (size < HEADER_SIZE) {
+					return null;
+				}
+				ByteBuffer buffer;
+				if (size > MAP_THRESHOLD) {
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+							size);
+				} else {
+					buffer = ByteBuffer.allocate((int) size);
+					while (buffer.hasRemaining()) {
+						if (channel.read(buffer) < 0) {
+							return null;
+						}
+					}
+					buffer.flip();
+				}
+				if (buffer.getInt() != MAGIC || buffer.get() != VERSION
+						|| buffer.getLong() != length
+						|| buffer.getLong() != checksum) {
+					mLogger.debug("Snapshot " + snapshot + " is outdated.");
+					return null;
+				}
+				return buffer.asReadOnlyBuffer();
+			} finally {
+				// the mapping stays valid after closing the channel
+				channel.close();
+			}
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			mLogger.debug("Could not read snapshot " + snapshot + ": "
+					+ e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Compiles the snapshot, failures are only logged as the yml-file can
+	 * always be parsed again. The snapshot gets the permissions of the
+	 * yml-file, as it contains the same data.
+	 *
+	 * The readers of the yml-file only hold its read lock, so the snapshot
+	 * has a lock of its own: while one reader compiles it, the others do not
+	 * compile it as well.
+	 */
+	private static void store(Path file, Path snapshot,
+			Map<String, Object> map, long length, long checksum) {
+		Lock lock = FileLocks.getLock(snapshot.toString()).writeLock();
+		if (!lock.tryLock()) {
+			return;
+		}
+		try {
+			CachedSnapshot cached = SNAPSHOTS.get(snapshot);
+			if (cached == null || !cached.belongsTo(length, checksum)) {
+				storeLocked(file, snapshot, map, length, checksum);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static void storeLocked(Path file, Path snapshot,
+			Map<String, Object> map, long length, long checksum) {
+		Encoder encoder = new Encoder();
+		encoder.putInt(MAGIC);
+		encoder.put(VERSION);
+		encoder.putLong(length);
+		encoder.putLong(checksum);
+		if (!encoder.putValue(map, new IdentityHashMap<Object, Object>())) {
+			mLogger.debug("File: " + file
+					+ " contains values a snapshot can not hold.");
+			return;
+		}
+		byte[] data = encoder.toByteArray();
+		try {
+			YamlWriter.replace(snapshot, data, file, false);
+			if (data.length <= MAP_THRESHOLD) {
+				// the next load does not need to read it
+				ByteBuffer buffer = ByteBuffer.wrap(data).asReadOnlyBuffer();
+				buffer.position(HEADER_SIZE);
+				cache(snapshot, buffer, length, checksum);
+			}
+		} catch (IOException e) {
+			mLogger.debug("Could not create snapshot " + snapshot + ": "
+					+ e.getMessage());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object walk(Object value, String[] keys) {
+		for (String key : keys) {
+			if (!(value instanceof Map)) {
+				break;
+			}
+			value = ((Map<String, Object>) value).get(key);
+		}
+		return value;
+	}
+
+	/**
+	 * Decodes the root {@link Map}, as {@link HashMap} like the
+	 * {@link YamlReader} does.
+	 */
+	static Map<String, Object> decodeRoot(ByteBuffer buffer) {
+		byte type = buffer.get();
+		if (type != MAP && type != INDEXED_MAP) {
+			throw new IllegalStateException("root is not a map");
+		}
+		buffer.getInt();
+		int size = buffer.getInt();
+		if (type == INDEXED_MAP) {
+			skipIndex(buffer);
+		}
+		Map<String, Object> map = new HashMap<String, Object>(
+				capacity(size));
+		decodeEntries(buffer, map, size);
+		return map;
+	}
+
+	/**
+	 * Looks up a value, skipping all {@link Map} entries that are not on the
+	 * way to it without decoding them.
+	 *
+	 * @param buffer
+	 *            the encoded root value, the position is changed
+	 * @param keys
+	 *            the keys leading from the root to the value
+	 * @return the decoded value or null, if the keys do not point to a value
+	 */
+	static Object find(ByteBuffer buffer, String[] keys) {
+		for (String key : keys) {
+			byte type = buffer.get(buffer.position());
+			if (type != MAP && type != INDEXED_MAP) {
+				// like walking the loaded map: a value that is not a map is
+				// the result, even if there are more keys
+				break;
+			}
+			buffer.get();
+			buffer.getInt();
+			int size = buffer.getInt();
+			byte[] encodedKey = key.getBytes(YamlWriter.CHARSET);
+			boolean found = type == INDEXED_MAP ? findIndexed(buffer, key,
+					encodedKey) : findLinear(buffer, size, encodedKey);
+			if (!found) {
+				return null;
+			}
+		}
+		return decode(buffer);
+	}
+
+	/**
+	 * @return true, if the key was found, the buffer is positioned at its
+	 *         value then
+	 */
+	private static boolean findLinear(ByteBuffer buffer, int size,
+			byte[] encodedKey) {
+		for (int i = 0; i < size; i++) {
+			boolean found = isString(buffer, encodedKey);
+			skip(buffer);
+			if (found) {
+				return true;
+			}
+			skip(buffer);
+		}
+		return false;
+	}
+
+	/**
+	 * Searches the index of the hash codes of the keys.
+	 *
+	 * @return true, if the key was found, the buffer is positioned at its
+	 *         value then
+	 */
+	private static boolean findIndexed(ByteBuffer buffer, String key,
+			byte[] encodedKey) {
+		int indexSize = buffer.getInt();
+		int index = buffer.position();
+		int entries = index + indexSize * 8;
+		int hash = key.hashCode();
+		int low = 0;
+		int high = indexSize - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int other = buffer.getInt(index + middle * 8);
+			if (other < hash) {
+				low = middle + 1;
+			} else if (other > hash) {
+				high = middle - 1;
+			} else {
+				low = middle;
+				break;
+			}
+		}
+		// all keys with the same hash code
+		while (low > 0 && buffer.getInt(index + (low - 1) * 8) == hash) {
+			low--;
+		}
+		for (int i = low; i < indexSize
+				&& buffer.getInt(index + i * 8) == hash; i++) {
+			buffer.position(entries + buffer.getInt(index + i * 8 + 4));
+			if (isString(buffer, encodedKey)) {
+				skip(buffer);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void skipIndex(ByteBuffer buffer) {
+		int indexSize = buffer.getInt();
+		buffer.position(buffer.position() + indexSize * 8);
+	}
+
+	private static boolean isString(ByteBuffer buffer, byte[] encoded) {
+		int position = buffer.position();
+		if (buffer.get(position) != STRING
+				|| buffer.getInt(position + 1) != encoded.length) {
+			return false;
+		}
+		int start = position + 5;
+		for (int i = 0; i < encoded.length; i++) {
+			if (buffer.get(start + i) != encoded[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void skip(ByteBuffer buffer) {
+		byte type = buffer.get();
+		switch (type) {
+		case NULL:
+		case TRUE:
+		case FALSE:
+			break;
+		case INTEGER:
+			buffer.position(buffer.position() + 4);
+			break;
+		case LONG:
+		case DOUBLE:
+			buffer.position(buffer.position() + 8);
+			break;
+		case STRING:
+		case BIG_INTEGER:
+		case MAP:
+		case INDEXED_MAP:
+		case LIST:
+			// the length of strings and the byte size of collections
+			int size = buffer.getInt();
+			buffer.position(buffer.position() + size);
+			break;
+		default:
+			throw new IllegalStateException("unknown type " + type);
+		}
+	}
+
+	/**
+	 * Encodes a value the way the content of a snapshot is encoded.
+	 *
+	 * @param value
+	 *            the value to be encoded
+	 * @return the encoded value or null, if it contains values a snapshot can
+	 *         not hold
+	 */
+	static byte[] encode(Object value) {
+		Encoder encoder = new Encoder();
+		if (!encoder.putValue(value, new IdentityHashMap<Object, Object>())) {
+			return null;
+		}
+		return encoder.toByteArray();
+	}
+
+	/**
+	 * Decodes a value encoded by {@link #encode(Object)}.
+	 *
+	 * @param buffer
+	 *            the encoded value, positioned after it afterwards
+	 * @return the value
+	 */
+	static Object decode(ByteBuffer buffer) {
+		byte type = buffer.get();
+		switch (type) {
+		case NULL:
+			return null;
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		case INTEGER:
+			return buffer.getInt();
+		case LONG:
+			return buffer.getLong();
+		case DOUBLE:
+			return buffer.getDouble();
+		case STRING:
+			return decodeString(buffer);
+		case BIG_INTEGER:
+			return new BigInteger(decodeString(buffer));
+		case MAP:
+		case INDEXED_MAP:
+			buffer.getInt();
+			int mapSize = buffer.getInt();
+			if (type == INDEXED_MAP) {
+				skipIndex(buffer);
+			}
+			Map<Object, Object> map = new LinkedHashMap<Object, Object>(
+					capacity(mapSize));
+			decodeEntries(buffer, map, mapSize);
+			return map;
+		case LIST:
+			buffer.getInt();
+			int listSize = buffer.getInt();
+			List<Object> list = new ArrayList<Object>(listSize);
+			for (int i = 0; i < listSize; i++) {
+				list.add(decode(buffer));
+			}
+			return list;
+		default:
+			throw new IllegalStateException("unknown type " + type);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void decodeEntries(ByteBuffer buffer, Map<?, ?> map,
+			int size) {
+		Map<Object, Object> entries = (Map<Object, Object>) map;
+		for (int i = 0; i < size; i++) {
+			Object key = decode(buffer);
+			entries.put(key, decode(buffer));
+		}
+	}
+
+	private static String decodeString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, YamlWriter.CHARSET);
+	}
+
+	private static int capacity(int size) {
+		return (int) (size / 0.75f) + 1;
+	}
+
+	/**
+	 * Encodes values into a growing byte array. {@link Map}s, {@link List}s
+	 * and strings are prefixed with their byte size, so they can be skipped.
+	 */
+	private static final class Encoder {
+
+		private byte[] mData = new byte[4096];
+
+		private int mSize;
+
+		private void ensure(int capacity) {
+			if (mData.length - mSize < capacity) {
+				mData = Arrays.copyOf(mData,
+						Math.max(mData.length * 2, mSize + capacity));
+			}
+		}
+
+		private void put(byte value) {
+			ensure(1);
+			mData[mSize++] = value;
+		}
+
+		private void putInt(int value) {
+			ensure(4);
+			ByteBuffer.wrap(mData, mSize, 4).putInt(value);
+			mSize += 4;
+		}
+
+		private void putLong(long value) {
+			ensure(8);
+			ByteBuffer.wrap(mData, mSize, 8).putLong(value);
+			mSize += 8;
+		}
+
+		private void putString(byte type, String value) {
+			byte[] bytes = value.getBytes(YamlWriter.CHARSET);
+			put(type);
+			putInt(bytes.length);
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, mData, mSize, bytes.length);
+			mSize += bytes.length;
+		}
+
+		/**
+		 * @param path
+		 *            the {@link Map}s and {@link List}s containing the value,
+		 *            to detect recursive structures built with aliases
+		 * @return false, if the value can not be encoded
+		 */
+		private boolean putValue(Object value,
+				IdentityHashMap<Object, Object> path) {
+			if (value == null) {
+				put(NULL);
+			} else if (value instanceof String) {
+				putString(STRING, (String) value);
+			} else if (value instanceof Boolean) {
+				put((Boolean) value ? TRUE : FALSE);
+			} else if (value instanceof Integer) {
+				put(INTEGER);
+				putInt((Integer) value);
+			} else if (value instanceof Long) {
+				put(LONG);
+				putLong((Long) value);
+			} else if (value instanceof BigInteger) {
+				putString(BIG_INTEGER, value.toString());
+			} else if (value instanceof Double) {
+				put(DOUBLE);
+				putLong(Double.doubleToRawLongBits((Double) value));
+			} else if (value instanceof Map || value instanceof List) {
+				return putCollection(value, path);
+			} else {
+				return false;
+			}
+			return true;
+		}
+
+		private boolean putCollection(Object value,
+				IdentityHashMap<Object, Object> path) {
+			if (path.put(value, value) != null) {
+				return false;
+			}
+			int start = mSize;
+			if (value instanceof Map
+					&& ((Map<?, ?>) value).size() >= INDEX_THRESHOLD) {
+				if (!putIndexedMap((Map<?, ?>) value, path)) {
+					return false;
+				}
+			} else if (value instanceof Map) {
+				Map<?, ?> map = (Map<?, ?>) value;
+				put(MAP);
+				putInt(0);
+				putInt(map.size());
+				for (Map.Entry<?, ?> e : map.entrySet()) {
+					if (!putValue(e.getKey(), path)
+							|| !putValue(e.getValue(), path)) {
+						return false;
+					}
+				}
+			} else {
+				put(LIST);
+				putInt(0);
+				List<?> list = (List<?>) value;
+				putInt(list.size());
+				for (Object o : list) {
+					if (!putValue(o, path)) {
+						return false;
+					}
+				}
+			}
+			path.remove(value);
+			// the byte size of the collection follows its type
+			ByteBuffer.wrap(mData, start + 1, 4).putInt(mSize - start - 5);
+			return true;
+		}
+
+		/**
+		 * Writes a {@link Map} with an index of the hash codes of its string
+		 * keys and the offsets of their entries, sorted by hash code.
+		 */
+		private boolean putIndexedMap(Map<?, ?> map,
+				IdentityHashMap<Object, Object> path) {
+			int strings = 0;
+			for (Object key : map.keySet()) {
+				if (key instanceof String) {
+					strings++;
+				}
+			}
+			put(INDEXED_MAP);
+			putInt(0);
+			putInt(map.size());
+			putInt(strings);
+			int index = mSize;
+			ensure(strings * 8);
+			mSize += strings * 8;
+			int entries = mSize;
+
+			long[] offsets = new long[strings];
+			int i = 0;
+			for (Map.Entry<?, ?> e : map.entrySet()) {
+				if (e.getKey() instanceof String) {
+					offsets[i++] = (long) e.getKey().hashCode() << 32
+							| mSize - entries;
+				}
+				if (!putValue(e.getKey(), path)
+						|| !putValue(e.getValue(), path)) {
+					return false;
+				}
+			}
+			Arrays.sort(offsets);
+			ByteBuffer table = ByteBuffer.wrap(mData, index, strings * 8);
+			for (long offset : offsets) {
+				table.putInt((int) (offset >> 32));
+				table.putInt((int) offset);
+			}
+			return true;
+		}
+
+		private byte[] toByteArray() {
+			return Arrays.copyOf(mData, mSize);
+		}
+	}
+
+	/**
+	 * A snapshot that was read, together with the size and the checksum of
+	 * the yml-file it belongs to.
+	 */
+	private static final class CachedSnapshot {
+
+		private final ByteBuffer mBuffer;
+
+		private final long mLength;
+
+		private final long mChecksum;
+
+		private CachedSnapshot(ByteBuffer buffer, long length, long checksum) {
+			mBuffer = buffer;
+			mLength = length;
+			mChecksum = checksum;
+		}
+
+		private boolean belongsTo(long length, long checksum) {
+			return mLength == length && mChecksum == checksum;
+		}
+	}
+}
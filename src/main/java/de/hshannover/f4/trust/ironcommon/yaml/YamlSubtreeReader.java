@@ -0,0 +1,279 @@
+/*
+ * #%L
+ * =====================================================
+ *   _____                _     ____  _   _       _   _
+ *  |_   _|_ __ _   _ ___| |_  / __ \| | | | ___ | | | |
+ *    | | | '__| | | / __| __|/ / _` | |_| |/ __|| |_| |
+ *    | | | |  | |_| \__ \ |_| | (_| |  _  |\__ \|  _  |
+ *    |_| |_|   \__,_|___/\__|\ \__,_|_| |_||___/|_| |_|
+ *                             \____/
+ * 
+ * =====================================================
+ * 
+ * Hochschule Hannover
+ * (University of Applied Sciences and Arts, Hannover)
+ * Faculty IV, Dept. of Computer Science
+ * Ricklinger Stadtweg 118, 30459 Hannover, Germany
+ * 
+ * Email: trust@f4-i.fh-hannover.de
+ * Website: http://trust.f4.hs-hannover.de/
+ * 
+ * This file is part of ironcommon, version 0.1.3, implemented by the Trust@HsH
+ * research group at the Hochschule Hannover.
+ * %%
+ * Copyright (C) 2015 Trust@HsH
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.hshannover.f4.trust.ironcommon.yaml;
+
+import java.io.Reader;
+
+import org.yaml.snakeyaml.composer.Composer;
+import org.yaml.snakeyaml.composer.ComposerException;
+import org.yaml.snakeyaml.constructor.BaseConstructor;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Looks up a single value of a yml-file by walking the event stream of the
+ * parser. Sibling subtrees are skipped without composing nodes or
+ * constructing objects, only the value the keys point to is constructed.
+ *
+ * The result equals the one of walking the fully loaded {@link java.util.Map}
+ * : the last of duplicate keys wins, and when a key points to a value that is
+ * not a mapping, this value is returned even if further keys remain. Aliases
+ * on the way to the value, merge keys and aliases to anchors outside the
+ * value can not be resolved from the stream; {@link #FALLBACK} is returned
+ * then and the caller has to load the whole file.
+ */
+final class YamlSubtreeReader {
+
+	/**
+	 * Returned when the value can not be determined without loading the whole
+	 * file.
+	 */
+	static final Object FALLBACK = new Object();
+
+	private final Parser mParser;
+
+	private final Resolver mResolver;
+
+	private final BaseConstructor mConstructor;
+
+	/**
+	 * Creates a {@link YamlSubtreeReader} for a yml-file.
+	 *
+	 * @param reader
+	 *            the content of the yml-file
+	 */
+	YamlSubtreeReader(Reader reader) {
+		mParser = new ParserImpl(new StreamReader(reader));
+		mResolver = YamlFactory.getResolver();
+		mConstructor = YamlFactory.getConstructor();
+	}
+
+	/**
+	 * Looks up the value.
+	 *
+	 * @param keys
+	 *            the keys leading from the root mapping to the value
+	 * @return the value, null if it does not exist or {@link #FALLBACK}
+	 */
+	Object find(String[] keys) {
+		// StreamStart
+		mParser.getEvent();
+		if (!mParser.checkEvent(Event.ID.DocumentStart)) {
+			// empty file
+			return null;
+		}
+		mParser.getEvent();
+		try {
+			return find(keys, 0);
+		} catch (ComposerException e) {
+			// an alias to an anchor outside of the value
+			return FALLBACK;
+		}
+	}
+
+	/**
+	 * Looks up the value in the node the parser is positioned at and consumes
+	 * this node.
+	 */
+	private Object find(String[] keys, int index) {
+		if (index == keys.length) {
+			return construct();
+		}
+
+		if (mParser.checkEvent(Event.ID.Alias)) {
+			return FALLBACK;
+		} else if (!mParser.checkEvent(Event.ID.MappingStart)) {
+			// like walking the loaded map: a value that is not a map is the
+			// result, even if there are more keys
+			return construct();
+		}
+
+		mParser.getEvent();
+		Object result = null;
+		while (!mParser.checkEvent(Event.ID.MappingEnd)) {
+			Event key = mParser.peekEvent();
+			if (key instanceof ScalarEvent) {
+				ScalarEvent scalar = (ScalarEvent) key;
+				Tag tag = resolve(scalar);
+				if (Tag.MERGE.equals(tag)) {
+					return FALLBACK;
+				} else if (Tag.STR.equals(tag)
+						&& keys[index].equals(scalar.getValue())) {
+					mParser.getEvent();
+					// the last of duplicate keys wins, keep on scanning
+					result = find(keys, index + 1);
+					if (result == FALLBACK) {
+						return FALLBACK;
+					}
+					continue;
+				}
+			}
+			skip();
+			skip();
+		}
+		mParser.getEvent();
+		return result;
+	}
+
+	private Tag resolve(ScalarEvent scalar) {
+		String tag = scalar.getTag();
+		if (tag == null || "!".equals(tag)) {
+			return mResolver.resolve(NodeId.scalar, scalar.getValue(), scalar
+					.getImplicit().canOmitTagInPlainScalar());
+		}
+		return new Tag(tag);
+	}
+
+	/**
+	 * Consumes the node the parser is positioned at, without composing it.
+	 */
+	private void skip() {
+		int depth = 0;
+		do {
+			Event event = mParser.getEvent();
+			if (event.is(Event.ID.MappingStart)
+					|| event.is(Event.ID.SequenceStart)) {
+				depth++;
+			} else if (event.is(Event.ID.MappingEnd)
+					|| event.is(Event.ID.SequenceEnd)) {
+				depth--;
+			}
+		} while (depth > 0);
+	}
+
+	/**
+	 * Composes and constructs the node the parser is positioned at.
+	 */
+	private Object construct() {
+		mConstructor.setComposer(new Composer(new NodeParser(mParser),
+				mResolver));
+		return mConstructor.getSingleData(Object.class);
+	}
+
+	/**
+	 * A {@link Parser} that presents a single node of another {@link Parser}
+	 * as a complete stream with one document.
+	 */
+	private static final class NodeParser implements Parser {
+
+		private final Parser mParser;
+
+		private Event mNext;
+
+		private int mState;
+
+		private int mDepth;
+
+		private NodeParser(Parser parser) {
+			mParser = parser;
+		}
+
+		@Override
+		public boolean checkEvent(Event.ID choice) {
+			Event next = peekEvent();
+			return next != null && next.is(choice);
+		}
+
+		@Override
+		public Event peekEvent() {
+			if (mNext == null) {
+				mNext = next();
+			}
+			return mNext;
+		}
+
+		@Override
+		public Event getEvent() {
+			Event next = peekEvent();
+			mNext = null;
+			return next;
+		}
+
+		private Event next() {
+			Event event;
+			switch (mState) {
+			case 0:
+				mState++;
+				event = mParser.peekEvent();
+				return new StreamStartEvent(event.getStartMark(),
+						event.getStartMark());
+			case 1:
+				mState++;
+				event = mParser.peekEvent();
+				return new DocumentStartEvent(event.getStartMark(),
+						event.getStartMark(), false, null, null);
+			case 2:
+				event = mParser.getEvent();
+				if (event.is(Event.ID.MappingStart)
+						|| event.is(Event.ID.SequenceStart)) {
+					mDepth++;
+				} else if (event.is(Event.ID.MappingEnd)
+						|| event.is(Event.ID.SequenceEnd)) {
+					mDepth--;
+				}
+				if (mDepth == 0) {
+					mState++;
+				}
+				return event;
+			case 3:
+				mState++;
+				event = mParser.peekEvent();
+				return new DocumentEndEvent(event.getStartMark(),
+						event.getStartMark(), false);
+			case 4:
+				mState++;
+				event = mParser.peekEvent();
+				return new StreamEndEvent(event.getStartMark(),
+						event.getStartMark());
+			default:
+				return null;
+			}
+		}
+	}
+}
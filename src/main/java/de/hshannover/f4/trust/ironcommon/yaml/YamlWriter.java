@@ -39,26 +39,50 @@
 package de.hshannover.f4.trust.ironcommon.yaml;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
 
-import org.yaml.snakeyaml.DumperOptions;
+import org.apache.log4j.Logger;
 import org.yaml.snakeyaml.Yaml;
 
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
 import de.hshannover.f4.trust.ironcommon.util.ObjectChecks;
 
 /**
  * Class that encapsulates writing of YAML-files.
  *
+ * Files are never written in place. The content is written to a temporary
+ * file in the same directory, which then replaces the yml-file with an atomic
+ * rename, so readers never see a partially written file. If the yml-file
+ * already has the same content, it is not written at all.
+ *
  * @author Marcel Reichenbach
  */
 public final class YamlWriter {
 
-	private static DumperOptions mOptions;
+	/**
+	 * The encoding of all yml-files.
+	 */
+	static final Charset CHARSET = Charset.forName("UTF-8");
 
-	static {
-		mOptions = buildDumperOptions();
-	}
+	private static Logger mLogger = Logger.getLogger(YamlWriter.class);
 
 	/**
 	 * Only static calls are allowed.
@@ -67,7 +91,8 @@ public final class YamlWriter {
 	}
 
 	/**
-	 * Save a given {@link Object} to the yml-file.
+	 * Save a given {@link Object} to the yml-file. The content is not forced
+	 * to the storage device, see {@link #persist(String, Object, boolean)}.
 	 *
 	 * @param fileName
 	 *            The file name of the yml-file.
@@ -77,34 +102,280 @@ public final class YamlWriter {
 	 *             If the file could not be opened, created (when it doesn't
 	 *             exist) or the given filename is a directory.
 	 */
-	public static synchronized void persist(String fileName, Object object)
+	public static void persist(String fileName, Object object)
+			throws IOException {
+		persist(fileName, object, false);
+	}
+
+	/**
+	 * Save a given {@link Object} to the yml-file. The file is replaced
+	 * atomically; if it already contains exactly the serialized
+	 * {@link Object}, it is left untouched.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param object
+	 *            The {@link Object} to be stored.
+	 * @param sync
+	 *            if true, the content is forced to the storage device before
+	 *            the yml-file is replaced, so it survives a crash of the
+	 *            operating system
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	public static void persist(String fileName, Object object, boolean sync)
 			throws IOException {
 		ObjectChecks.checkForNullReference(fileName, "fileName is null");
 		ObjectChecks.checkForNullReference(object, "object is null");
 
-		FileWriter fileWriter = null;
-		File f = null;
+		FileMetrics metrics = FileMetrics.getMetrics(fileName);
+		long start = System.nanoTime();
+		Yaml yaml = YamlFactory.getDumper();
+		byte[] data = yaml.dump(object).getBytes(CHARSET);
+		metrics.recordDump(System.nanoTime() - start);
+
+		// only writers of the same file exclude each other and its readers
+		Lock lock = FileLocks.lockForWriting(fileName, metrics);
+		try {
+			replace(fileName, data, sync, metrics);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Save a given {@link Object} to the yml-file, that differs from the
+	 * current content of the file only by some changed values. If possible,
+	 * only the text of these values is replaced in the file and all other
+	 * parts are copied unchanged, keeping comments, formatting and order.
+	 * Otherwise the whole {@link Object} is written like
+	 * {@link #persist(String, Object)} does.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param object
+	 *            The {@link Object} to be stored, the current content of the
+	 *            file with the changes applied.
+	 * @param changes
+	 *            the keys leading from the root mapping to a value and the new
+	 *            value, in the order they were applied to the {@link Object}
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	public static void persist(String fileName, Object object,
+			List<Map.Entry<String[], Object>> changes) throws IOException {
+		persist(fileName, object, changes, false);
+	}
+
+	/**
+	 * Save a given {@link Object} to the yml-file, that differs from the
+	 * current content of the file only by some changed values, see
+	 * {@link #persist(String, Object, List)}.
+	 *
+	 * @param fileName
+	 *            The file name of the yml-file.
+	 * @param object
+	 *            The {@link Object} to be stored, the current content of the
+	 *            file with the changes applied.
+	 * @param changes
+	 *            the keys leading from the root mapping to a value and the new
+	 *            value, in the order they were applied to the {@link Object}
+	 * @param sync
+	 *            if true, the content is forced to the storage device before
+	 *            the yml-file is replaced
+	 * @throws IOException
+	 *             If the file could not be opened, created (when it doesn't
+	 *             exist) or the given filename is a directory.
+	 */
+	public static void persist(String fileName, Object object,
+			List<Map.Entry<String[], Object>> changes, boolean sync)
+			throws IOException {
+		ObjectChecks.checkForNullReference(fileName, "fileName is null");
+		ObjectChecks.checkForNullReference(object, "object is null");
+		ObjectChecks.checkForNullReference(changes, "changes is null");
 
+		FileMetrics metrics = FileMetrics.getMetrics(fileName);
+		// the text must not change between patching and writing it
+		Lock lock = FileLocks.lockForWriting(fileName, metrics);
 		try {
-			fileWriter = new FileWriter(fileName);
+			byte[] data = patch(fileName, object, changes, metrics);
+			if (data == null) {
+				long start = System.nanoTime();
+				data = YamlFactory.getDumper().dump(object).getBytes(CHARSET);
+				metrics.recordDump(System.nanoTime() - start);
+			}
+			replace(fileName, data, sync, metrics);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the patched content of the file or null, if it has to be dumped
+	 */
+	private static byte[] patch(String fileName, Object object,
+			List<Map.Entry<String[], Object>> changes, FileMetrics metrics) {
+		Path file = Paths.get(fileName);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		long start = System.nanoTime();
+		String text;
+		try {
+			byte[] original = Files.readAllBytes(file);
+			metrics.recordRead(original.length);
+			// only a text that is encoded again to the same bytes is patched
+			text = CHARSET.newDecoder().decode(ByteBuffer.wrap(original))
+					.toString();
+		} catch (CharacterCodingException e) {
+			return null;
 		} catch (IOException e) {
-			f = new File(fileName);
-			if (f.isDirectory()) {
-				throw new IOException(fileName + " is a directory");
-			} else {
-				throw new IOException("Could not create " + fileName + ": "
-						+ e.getMessage());
+			// dump the content, writing it reports the problem
+			return null;
+		}
+		String patched = YamlPatcher.patch(text, object, changes);
+		if (patched == null) {
+			mLogger.debug("File: " + fileName
+					+ " can not be patched, dump the whole content.");
+			return null;
+		}
+		byte[] data = patched.getBytes(CHARSET);
+		metrics.recordPatch(System.nanoTime() - start);
+		return data;
+	}
+
+	private static void replace(String fileName, byte[] data, boolean sync,
+			FileMetrics metrics) throws IOException {
+		File f = new File(fileName);
+		if (f.isDirectory()) {
+			throw new IOException(fileName + " is a directory");
+		}
+
+		// replace the file a symbolic link points to, not the link itself
+		Path target = f.toPath();
+		if (Files.isSymbolicLink(target)) {
+			target = target.toRealPath();
+		}
+
+		if (hasContent(target, data)) {
+			mLogger.debug("File: " + fileName
+					+ " already has the content, skip writing it.");
+			metrics.recordUnchangedWrite();
+			return;
+		}
+
+		try {
+			long start = System.nanoTime();
+			replace(target, data, target, sync);
+			metrics.recordWrite(System.nanoTime() - start, data.length);
+		} catch (IOException e) {
+			throw new IOException("Could not create " + fileName + ": "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces a file atomically by writing the content to a temporary file in
+	 * the same directory and renaming it.
+	 *
+	 * @param target
+	 *            the file to be replaced, it does not need to exist
+	 * @param data
+	 *            the new content of the file
+	 * @param permissions
+	 *            an existing file whose permissions the new file gets,
+	 *            otherwise it is created with the default permissions
+	 * @param sync
+	 *            if true, the content and the rename are forced to the storage
+	 *            device
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	static void replace(Path target, byte[] data, Path permissions,
+			boolean sync) throws IOException {
+		String random = Long.toHexString(ThreadLocalRandom.current()
+				.nextLong());
+		Path temp = target.toAbsolutePath().resolveSibling(
+				"." + target.getFileName() + "." + random + ".tmp");
+		try {
+			write(temp, data, sync);
+			copyPermissions(permissions, temp);
+			move(temp, target);
+			if (sync) {
+				syncDirectory(temp.getParent());
 			}
+		} finally {
+			Files.deleteIfExists(temp);
 		}
+	}
 
-		Yaml yaml = new Yaml(mOptions);
-		yaml.dump(object, fileWriter);
-		fileWriter.close();
+	private static boolean hasContent(Path file, byte[] data) {
+		try {
+			return Files.isRegularFile(file) && Files.size(file) == data.length
+					&& Arrays.equals(Files.readAllBytes(file), data);
+		} catch (IOException e) {
+			// write the file, this reports the problem
+			return false;
+		}
+	}
+
+	private static void write(Path file, byte[] data, boolean sync)
+			throws IOException {
+		FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			if (sync) {
+				channel.force(true);
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * The temporary file is created with the default permissions, an existing
+	 * yml-file keeps its own.
+	 */
+	private static void copyPermissions(Path from, Path to) throws IOException {
+		PosixFileAttributeView source = Files.getFileAttributeView(from,
+				PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+		if (source != null && Files.exists(from)) {
+			Files.getFileAttributeView(to, PosixFileAttributeView.class)
+					.setPermissions(source.readAttributes().permissions());
+		}
+	}
+
+	private static void move(Path from, Path to) throws IOException {
+		try {
+			Files.move(from, to, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+		}
 	}
 
-	private static DumperOptions buildDumperOptions() {
-		DumperOptions options = new DumperOptions();
-		options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-		return options;
+	/**
+	 * Forces the entries of a directory, e.g. after a rename, to the storage
+	 * device. Not every platform allows to open a directory, this is silently
+	 * skipped there.
+	 */
+	static void syncDirectory(Path directory) {
+		try {
+			FileChannel channel = FileChannel.open(directory,
+					StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			mLogger.debug("Could not sync directory " + directory + ": "
+					+ e.getMessage());
+		}
 	}
 }
@@ -40,15 +40,38 @@
 package de.hshannover.f4.trust.ironcommon.properties;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
 import de.hshannover.f4.trust.ironcommon.util.TestUtilities;
+import de.hshannover.f4.trust.ironcommon.yaml.YamlJournal;
 
 /**
  * Test class for {@link Properties}.
@@ -345,4 +368,1044 @@ public class PropertyTest {
 		// tests if exists and clean the system
 		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
 	}
+
+	/**
+	 * Tests that a cached {@link Properties} instance sees changes made by
+	 * another instance and that modifying returned values does not affect the
+	 * cache.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testCachedProperties() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties cached = new Properties(mFilePathForEqualityTest, true);
+		cached.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+		assertEquals(mKeyValueTwoTokenKeys, cached.getValue(mKeyTwoTokenKeys));
+
+		// modifying a returned map must not change the cached content
+		@SuppressWarnings("unchecked")
+		Map<String, Object> fooMap = (Map<String, Object>) cached
+				.getValue("foo2");
+		fooMap.clear();
+		assertEquals(mKeyValueTwoTokenKeys, cached.getValue(mKeyTwoTokenKeys));
+
+		// a change by another instance is detected
+		new Properties(mFilePathForEqualityTest).set(mKeyTwoTokenKeys,
+				mKeyValueManyTokenKeys);
+		assertEquals(mKeyValueManyTokenKeys, cached.getValue(mKeyTwoTokenKeys));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests that a change of cached properties copies only the maps on the
+	 * changed paths and shares all other subtrees with the cached content.
+	 *
+	 * @throws PropertyException
+	 *             If loading or storing the properties fails.
+	 */
+	@Test
+	public void testPathCopying() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties cached = new Properties(mFilePathForEqualityTest, true);
+		cached.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+		cached.set(mKeyManyTokenKeys, mKeyValueManyTokenKeys);
+		Map<String, Object> before = cached.loadSubtree();
+
+		PropertiesTransaction transaction = cached.beginTransaction();
+		transaction.set(mKeyManyTokenKeys2, mKeyValueTwoTokenKeys);
+		transaction.set("foo3.bar.other", mKeyValueOneTokenKey);
+		transaction.commit();
+		Map<String, Object> after = cached.loadSubtree();
+
+		// the untouched subtree is the same instance, the changed path and
+		// the cached content before the change are copies
+		assertSame(before.get("foo2"), after.get("foo2"));
+		assertNotSame(before.get("foo3"), after.get("foo3"));
+		assertNotSame(before, after);
+		assertFalse(((Map<?, ?>) ((Map<?, ?>) before.get("foo3"))
+				.get("bar")).containsKey("other"));
+
+		Properties uncached = new Properties(mFilePathForEqualityTest);
+		assertEquals(uncached.load(), cached.load());
+		assertEquals(mKeyValueManyTokenKeys,
+				cached.getValue(mKeyManyTokenKeys));
+		assertEquals(mKeyValueTwoTokenKeys,
+				uncached.getValue(mKeyManyTokenKeys2));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests the index of the cached content: sub-views and paths through
+	 * values resolve like without cache, and a change carries the index over
+	 * instead of building it again.
+	 *
+	 * @throws PropertyException
+	 *             If loading or storing the properties fails.
+	 */
+	@Test
+	public void testIndexedProperties() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties cached = new Properties(mFilePathForEqualityTest, true);
+		cached.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+
+		// sub-views and paths through values resolve like without cache
+		cached.set(mKeyManyTokenKeys, mKeyValueManyTokenKeys);
+		assertEquals(mKeyValueManyTokenKeys, cached.get("foo3.bar")
+				.getValue("fubar.baz"));
+		assertEquals(mKeyValueManyTokenKeys, cached.get("foo3").get("bar")
+				.getValue("fubar.baz.more"));
+		assertEquals(new Properties(mFilePathForEqualityTest).getValue("foo3"),
+				cached.getValue("foo3"));
+		assertEquals("default", cached.get("foo3").getString(
+				mKeyManyTokenKeys2, "default"));
+
+		// every change carries the index over, it equals a rebuilt one
+		PropertiesReader reader = cached.getReader();
+		assertNotNull(reader.getIndex());
+		cached.set("foo3.bar", mKeyValueOneTokenKey);
+		assertEquals(PropertiesReader.buildIndex(cached.loadSubtree()),
+				reader.getIndex());
+		cached.set(mKeyManyTokenKeys, mKeyValueManyTokenKeys);
+		assertEquals(PropertiesReader.buildIndex(cached.loadSubtree()),
+				reader.getIndex());
+		PropertiesTransaction transaction = cached.beginTransaction();
+		transaction.set("foo4.a.b", mKeyValueOneTokenKey);
+		transaction.set("foo4.a", mKeyValueTwoTokenKeys);
+		transaction.set("foo2.new", mKeyValueOneTokenKey);
+		transaction.commit();
+		assertEquals(PropertiesReader.buildIndex(cached.loadSubtree()),
+				reader.getIndex());
+		assertEquals(mKeyValueTwoTokenKeys, cached.getValue("foo4.a"));
+		assertEquals(mKeyValueOneTokenKey, cached.getValue("foo2.new"));
+		assertEquals(mKeyValueManyTokenKeys,
+				cached.getValue(mKeyManyTokenKeys));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests that a watched {@link Properties} instance reloads and notifies
+	 * its listeners when the file is modified by someone else.
+	 *
+	 * @throws Exception
+	 *             If loading the properties from the file fails or the test
+	 *             is interrupted.
+	 */
+	@Test
+	public void testWatchedProperties() throws Exception {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties watched = new Properties(mFilePathForEqualityTest, true);
+		watched.set(mKeyOneTokenKey, mKeyValueOneTokenKey);
+
+		final CountDownLatch changed = new CountDownLatch(1);
+		final AtomicInteger notifications = new AtomicInteger();
+		watched.addChangeListener(new PropertiesChangeListener() {
+			@Override
+			public void propertiesChanged(Properties properties) {
+				notifications.incrementAndGet();
+				changed.countDown();
+			}
+		});
+		watched.startWatching(200);
+		try {
+			// let the notification for the own set pass
+			Thread.sleep(500);
+			notifications.set(0);
+
+			// a burst of modifications
+			Properties other = new Properties(mFilePathForEqualityTest);
+			other.set(mKeyOneTokenKey, mKeyValueTwoTokenKeys);
+			other.set(mKeyOneTokenKey, mKeyValueManyTokenKeys);
+
+			assertTrue(changed.await(10, TimeUnit.SECONDS));
+			assertEquals(mKeyValueManyTokenKeys,
+					watched.getValue(mKeyOneTokenKey));
+			assertEquals(1, notifications.get());
+		} finally {
+			watched.stopWatching();
+		}
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests parsing of {@link PropertyPath}s and using them with sub
+	 * {@link Properties}.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testPropertyPath() throws PropertyException {
+		assertTrue(new PropertyPath("").isRoot());
+		assertEquals(3, new PropertyPath("foo.bar.key.").getLength());
+		assertEquals("foo.bar.key", new PropertyPath("foo.bar.key.").toString());
+		assertEquals(new PropertyPath("foo.bar.key"), new PropertyPath("foo")
+				.append("bar").append(new PropertyPath("key")));
+		assertEquals(new PropertyPath("foo"),
+				new PropertyPath("foo").append(PropertyPath.ROOT));
+
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		PropertyPath baz = new PropertyPath("fubar.baz");
+		Properties properties = new Properties(mFilePathForEqualityTest);
+		properties.set(new PropertyPath(mKeyManyTokenKeys),
+				mKeyValueManyTokenKeys);
+		assertEquals(mKeyValueManyTokenKeys,
+				properties.get("foo3").get("bar").getValue(baz));
+		assertEquals(mKeyValueManyTokenKeys,
+				properties.get("foo3.bar").getString(baz));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests that all values of a {@link PropertiesTransaction} on a sub
+	 * {@link Properties} instance are stored on commit.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testTransaction() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties properties = new Properties(mFilePathForEqualityTest);
+		properties.set(mKeyOneTokenKey, mKeyValueOneTokenKey);
+
+		PropertiesTransaction transaction = properties.get("foo3")
+				.beginTransaction();
+		transaction.set("bar.fubar.baz", mKeyValueTwoTokenKeys);
+		transaction.set("bar.fubar.baz", mKeyValueManyTokenKeys);
+		transaction.set("bar.fubar.baz2", 42);
+		transaction.set("bar2", mCollectionsTestList);
+		assertEquals(4, transaction.size());
+
+		// nothing is stored before the commit
+		assertEquals(null, properties.getValue("foo3", null));
+		transaction.commit();
+
+		Properties equalsProperties = new Properties(mFilePathForEqualityTest);
+		assertEquals(mKeyValueOneTokenKey,
+				equalsProperties.getValue(mKeyOneTokenKey));
+		assertEquals(mKeyValueManyTokenKeys,
+				equalsProperties.getValue(mKeyManyTokenKeys));
+		assertEquals(42, equalsProperties.getInt(mKeyManyTokenKeys2));
+		assertEquals(mCollectionsTestList,
+				equalsProperties.getValue("foo3.bar2"));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests the typed getters with native and {@link String} values and their
+	 * default values.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testTypedGetters() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties properties = new Properties(mFilePathForEqualityTest, true);
+		PropertiesTransaction transaction = properties.beginTransaction();
+		transaction.set("native.int", 42);
+		transaction.set("native.double", 4.2);
+		transaction.set("native.boolean", true);
+		transaction.set("string.int", "42");
+		transaction.set("string.double", "4.2");
+		transaction.set("string.boolean", "true");
+		transaction.commit();
+
+		Properties p = properties.get("native");
+		Properties s = properties.get("string");
+		for (int i = 0; i < 2; i++) {
+			assertEquals(42, p.getInt("int"));
+			assertEquals(42, s.getInt("int"));
+			assertEquals(4.2, p.getDouble("double"), 0);
+			assertEquals(4.2, s.getDouble("double"), 0);
+			assertEquals(42.0, p.getDouble("int"), 0);
+			assertTrue(p.getBoolean("boolean"));
+			assertTrue(s.getBoolean("boolean"));
+			assertEquals("42", p.getString("int"));
+		}
+
+		assertEquals(42, p.getInt(new PropertyPath("int"), 7));
+		assertEquals(7, p.getInt(new PropertyPath("missing"), 7));
+		assertEquals(7.5, s.getDouble("missing.double", 7.5), 0);
+		assertTrue(s.getBoolean("boolean.missing", true));
+		assertEquals(null, s.getString("missing", null));
+
+		try {
+			p.getInt("double");
+			throw new RuntimeException("4.2 is not an int");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests reading and writing properties in streaming mode.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testStreamingProperties() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties properties = new Properties(mFilePathForEqualityTest,
+				PropertiesMode.STREAMING);
+		assertEquals(PropertiesMode.STREAMING, properties.getMode());
+		assertFalse(properties.isCached());
+		properties.set(mKeyOneTokenKey, mKeyValueOneTokenKey);
+		properties.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+		properties.set(mKeyManyTokenKeys, mKeyValueManyTokenKeys);
+		properties.set(mKeyManyTokenKeys2, 42);
+
+		assertEquals(mKeyValueOneTokenKey,
+				properties.getValue(mKeyOneTokenKey));
+		assertEquals(mKeyValueTwoTokenKeys,
+				properties.getString(mKeyTwoTokenKeys));
+		assertEquals(42, properties.getInt(mKeyManyTokenKeys2));
+		assertEquals(mKeyValueManyTokenKeys, properties.get("foo3.bar")
+				.getValue("fubar.baz"));
+		assertEquals(properties.load().get("foo3"), properties.getValue("foo3"));
+		assertEquals("default",
+				properties.getString(mKeyTwoTokenKeys2, "default"));
+
+		try {
+			properties.getValue(mKeyTwoTokenKeys2);
+			throw new RuntimeException("foo2.bar2 does not exist");
+		} catch (PropertyException e) {
+			// expected
+		}
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests reading and writing properties held outside of the Java heap.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testOffHeapProperties() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties properties = new Properties(mFilePathForEqualityTest,
+				PropertiesMode.OFF_HEAP);
+		assertEquals(PropertiesMode.OFF_HEAP, properties.getMode());
+		assertTrue(properties.isCached());
+		properties.set(mKeyOneTokenKey, mKeyValueOneTokenKey);
+		properties.set(mKeyManyTokenKeys, mKeyValueManyTokenKeys);
+		for (int i = 0; i < 20; i++) {
+			properties.set("many.key" + i, i);
+		}
+
+		assertEquals(mKeyValueOneTokenKey,
+				properties.getValue(mKeyOneTokenKey));
+		assertEquals(mKeyValueManyTokenKeys, properties.get("foo3.bar")
+				.getValue("fubar.baz"));
+		assertEquals(13, properties.getInt("many.key13"));
+		assertEquals("default", properties.getString("many.key20", "default"));
+
+		// values are decoded again for every access, so they may be modified
+		@SuppressWarnings("unchecked")
+		Map<String, Object> many = (Map<String, Object>) properties
+				.getValue("many");
+		assertEquals(20, many.size());
+		many.put("key0", "modified");
+		assertEquals(0, properties.getInt("many.key0"));
+
+		Properties reloaded = new Properties(mFilePathForEqualityTest);
+		assertEquals(reloaded.load(), properties.load());
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests canonicalizing the loaded content.
+	 *
+	 * @throws Exception
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testInterningProperties() throws Exception {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties properties = new Properties(mFilePathForEqualityTest,
+				PropertiesMode.CACHED);
+		properties.setInterningEnabled(true);
+		assertTrue(properties.isInterningEnabled());
+		Map<String, Object> tls = new HashMap<String, Object>();
+		tls.put("cert", "server.pem");
+		tls.put("verify", true);
+		properties.set("a.tls", tls);
+		properties.set("b.tls", tls);
+		properties.set("a.port", 1);
+
+		// reloaded from the file, the equal subtrees are shared
+		PropertiesReader reader = new PropertiesReader(
+				mFilePathForEqualityTest, PropertiesMode.CACHED);
+		reader.setInterningEnabled(true);
+		Map<String, Object> root = reader.loadShared();
+		assertSame(((Map<?, ?>) root.get("a")).get("tls"),
+				((Map<?, ?>) root.get("b")).get("tls"));
+
+		Properties cached = new Properties(mFilePathForEqualityTest,
+				PropertiesMode.CACHED);
+		cached.setInterningEnabled(true);
+
+		// changing one occurrence leaves the other one unchanged
+		cached.set("a.tls.verify", false);
+		assertEquals(false, cached.getBoolean("a.tls.verify"));
+		assertEquals(true, cached.getBoolean("b.tls.verify"));
+		assertEquals(true, new Properties(mFilePathForEqualityTest)
+				.getBoolean("b.tls.verify"));
+
+		// content loaded for modification shares no subtrees
+		Properties reload = new Properties(mFilePathForEqualityTest);
+		reload.setInterningEnabled(true);
+		reload.set("b.tls.cert", "client.pem");
+		assertEquals("server.pem", reload.getString("a.tls.cert"));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests that all names of a property-file share one {@link Properties}
+	 * instance per mode.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testSharedProperties() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties shared = Properties.getShared(mFilePathForEqualityTest);
+		assertEquals(PropertiesMode.CACHED, shared.getMode());
+		String otherName = new File(mFilePathForEqualityTest)
+				.getAbsolutePath();
+		assertSame(shared, Properties.getShared(otherName));
+		assertSame(shared, Properties.getShared(mFilePathForEqualityTest,
+				PropertiesMode.CACHED));
+		Properties streaming = Properties.getShared(otherName,
+				PropertiesMode.STREAMING);
+		assertNotSame(shared, streaming);
+		assertTrue(PropertiesRegistry.size() >= 2);
+
+		shared.set(mKeyOneTokenKey, mKeyValueOneTokenKey);
+		assertEquals(mKeyValueOneTokenKey, Properties.getShared(otherName)
+				.getValue(mKeyOneTokenKey));
+		assertEquals(mKeyValueOneTokenKey,
+				streaming.getValue(mKeyOneTokenKey));
+
+		// an instance that is watching is kept, even if nobody uses it
+		Properties.getShared(otherName, PropertiesMode.RELOAD).startWatching();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		Properties watching = Properties.getShared(otherName,
+				PropertiesMode.RELOAD);
+		assertTrue(watching.isWatching());
+		watching.stopWatching();
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests getting the values of several property paths at once in all
+	 * modes.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testGetValues() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties writer = new Properties(mFilePathForEqualityTest);
+		writer.set("server.host", "localhost");
+		writer.set("server.port", 8443);
+		writer.set("server.tls.verify", true);
+		writer.set("timeout", "2.5");
+
+		List<String> paths = Arrays.asList("timeout", "server.port",
+				"server.host", "server.missing", "server.port.more",
+				"server.tls", "missing.key");
+		for (PropertiesMode mode : PropertiesMode.values()) {
+			Properties properties = new Properties(mFilePathForEqualityTest,
+					mode);
+			Map<String, Object> values = properties.getValues(paths);
+			assertEquals(Arrays.asList("timeout", "server.port",
+					"server.host", "server.port.more", "server.tls"),
+					new ArrayList<String>(values.keySet()));
+			for (String path : values.keySet()) {
+				assertEquals(properties.getValue(path), values.get(path));
+			}
+
+			PropertyValues typed = properties.getPropertyValues(paths);
+			assertEquals(8443, typed.getInt("server.port"));
+			assertEquals(2.5, typed.getDouble("timeout"), 0);
+			assertEquals("localhost", typed.getString("server.host"));
+			assertEquals(7, typed.getInt("server.missing", 7));
+			assertTrue(typed.contains("server.tls"));
+			assertFalse(typed.contains("missing.key"));
+			try {
+				typed.getBoolean("server.tls.verify");
+				throw new RuntimeException("server.tls.verify not requested");
+			} catch (PropertyException e) {
+				// expected
+			}
+
+			// property paths are relative to a sub-properties instance
+			PropertyValues server = properties.get("server")
+					.getPropertyValues(Arrays.asList("tls.verify", "host"));
+			assertTrue(server.getBoolean("tls.verify"));
+			assertEquals("localhost", server.getString("host"));
+		}
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests binding property subtrees to instances of a class.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testBind() throws PropertyException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties properties = new Properties(mFilePathForEqualityTest, true);
+		PropertiesTransaction transaction = properties.beginTransaction();
+		transaction.set("server.host", "localhost");
+		transaction.set("server.port", "8443");
+		transaction.set("server.secure", true);
+		transaction.set("server.timeout.millis", 500);
+		transaction.set("server.unknown", "ignored");
+		transaction.commit();
+
+		ServerConfig server = properties.bind("server", ServerConfig.class);
+		assertEquals("localhost", server.getHost());
+		assertEquals(8443, server.getPort());
+		assertTrue(server.secure);
+		assertEquals(500L, server.timeout.millis);
+
+		// cached instances are bound again only when the file changes
+		assertSame(server, properties.get("server").bind(PropertyPath.ROOT,
+				ServerConfig.class));
+		new Properties(mFilePathForEqualityTest).set("server.port", 8080);
+		ServerConfig changed = properties.bind("server", ServerConfig.class);
+		assertNotSame(server, changed);
+		assertEquals(8080, changed.getPort());
+
+		Properties uncached = new Properties(mFilePathForEqualityTest);
+		assertNotSame(uncached.bind("server", ServerConfig.class),
+				uncached.bind("server", ServerConfig.class));
+
+		try {
+			properties.bind("server.host", ServerConfig.class);
+			throw new RuntimeException("server.host is not a subtree");
+		} catch (PropertyException e) {
+			// expected
+		}
+
+		// setters of a class that is not public, the overload taking the
+		// type of the field is used
+		Class<?> endpointType = TestUtilities.getEndpointClass();
+		assertEquals("localhost:8080",
+				properties.bind("server", endpointType).toString());
+		properties.set("server.mode", "fast");
+		try {
+			properties.bind("server", endpointType);
+			throw new RuntimeException("setMode is overloaded");
+		} catch (PropertyException e) {
+			// expected
+		}
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests that accesses to a property-file are recorded in its
+	 * {@link FileMetrics}, which are registered as MBean.
+	 *
+	 * @throws Exception
+	 *             If loading the properties from the file fails or the MBean
+	 *             is not registered.
+	 */
+	@Test
+	public void testFileMetrics() throws Exception {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		FileMetrics metrics = FileMetrics.getMetrics(mFilePathForEqualityTest);
+		metrics.reset();
+
+		Properties properties = new Properties(mFilePathForEqualityTest, true);
+		properties.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+		properties.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+		properties.getValue(mKeyTwoTokenKeys);
+		properties.getValue(mKeyTwoTokenKeys);
+		properties.getString(mKeyTwoTokenKeys2, null);
+
+		assertEquals(1, metrics.getParseCount());
+		// the second set only replaces the value in the text of the file
+		assertEquals(1, metrics.getDumpCount());
+		assertEquals(1, metrics.getPatchCount());
+		assertEquals(1, metrics.getWriteCount());
+		assertEquals(1, metrics.getUnchangedWriteCount());
+		assertTrue(metrics.getBytesWritten() > 0);
+		assertEquals(3, metrics.getLookupCount());
+		assertEquals(1, metrics.getLookupMissCount());
+		assertEquals(1, metrics.getCacheMissCount());
+		assertTrue(metrics.getCacheHitCount() >= 3);
+		// nested acquisitions of a held lock are not counted again
+		assertEquals(2, metrics.getWriteLockWaitCount());
+
+		ObjectName name = new ObjectName(
+				"de.hshannover.f4.trust.ironcommon:type=FileMetrics,file="
+						+ ObjectName.quote(metrics.getFile()));
+		assertEquals(3L, ManagementFactory.getPlatformMBeanServer()
+				.getAttribute(name, "LookupCount"));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests merging several {@link Properties} layers and that changes of a
+	 * layer are visible in the merged view.
+	 *
+	 * @throws PropertyException
+	 *             If loading the properties from the file fails.
+	 */
+	@Test
+	public void testLayeredProperties() throws PropertyException {
+		String defaultsFile = DIRECTORY_TEST_RESOURCES + "testDefaults.yml";
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+		TestUtilities.deleteTestFile(defaultsFile);
+
+		Properties defaults = new Properties(defaultsFile, true);
+		PropertiesTransaction transaction = defaults.beginTransaction();
+		transaction.set("server.host", "localhost");
+		transaction.set("server.port", 8443);
+		transaction.set("client.retries", 3);
+		transaction.set("client.list", mCollectionsTestList);
+		transaction.commit();
+		Properties host = new Properties(mFilePathForEqualityTest, true);
+		host.set("server.port", 9000);
+		host.set("client.list", "none");
+
+		LayeredProperties layered = new LayeredProperties(defaults, host);
+		assertEquals("localhost", layered.getString("server.host"));
+		assertEquals(9000, layered.getInt("server.port"));
+		assertEquals(3, layered.getInt(new PropertyPath("client.retries")));
+		assertEquals("none", layered.getValue("client.list"));
+		assertEquals(7, layered.getInt("client.missing", 7));
+		assertEquals(2, layered.load().size());
+		try {
+			layered.getValue("server.missing");
+			throw new RuntimeException("server.missing does not exist");
+		} catch (PropertyException e) {
+			// expected
+		}
+
+		// changes of a layer are merged, the other subtrees are reused
+		Object server = layered.getValue("server");
+		host.set("client.retries", 5);
+		assertEquals(5, layered.getInt("client.retries"));
+		assertEquals(server, layered.getValue("server"));
+		defaults.set("server.host", "example.org");
+		assertEquals("example.org", layered.getString("server.host"));
+		assertEquals(9000, layered.getInt("server.port"));
+
+		// sub-views can be used as layers as well
+		LayeredProperties servers = new LayeredProperties(
+				defaults.get("server"), host.get("server"));
+		assertEquals(9000, servers.getInt("port"));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+		TestUtilities.checkAndDeleteTestFile(defaultsFile);
+	}
+
+	/**
+	 * Tests that a {@link PropertiesDiffListener} of a sub-{@link Properties}
+	 * is only notified about changes of its subtree.
+	 *
+	 * @throws Exception
+	 *             If loading the properties from the file fails or the test
+	 *             is interrupted.
+	 */
+	@Test
+	public void testDiffListener() throws Exception {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		Properties watched = new Properties(mFilePathForEqualityTest, true);
+		PropertiesTransaction transaction = watched.beginTransaction();
+		transaction.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+		transaction.set(mKeyTwoTokenKeys2, mKeyValueTwoTokenKeys);
+		transaction.set(mKeyManyTokenKeys, mKeyValueManyTokenKeys);
+		transaction.commit();
+
+		final List<PropertiesDiff> rootDiffs = new CopyOnWriteArrayList<PropertiesDiff>();
+		final List<PropertiesDiff> fooDiffs = new CopyOnWriteArrayList<PropertiesDiff>();
+		watched.addDiffListener(new PropertiesDiffListener() {
+			@Override
+			public void propertiesChanged(Properties properties,
+					PropertiesDiff diff) {
+				rootDiffs.add(diff);
+			}
+		});
+		watched.get("foo2").addDiffListener(new PropertiesDiffListener() {
+			@Override
+			public void propertiesChanged(Properties properties,
+					PropertiesDiff diff) {
+				fooDiffs.add(diff);
+			}
+		});
+		watched.startWatching(100);
+		try {
+			// a change outside of foo2
+			watched.set(mKeyManyTokenKeys2, mKeyValueOneTokenKey);
+			waitForSize(rootDiffs, 1);
+			assertEquals(0, fooDiffs.size());
+			PropertyChange added = rootDiffs.get(0).getAdded().get(0);
+			assertEquals(new PropertyPath(mKeyManyTokenKeys2),
+					added.getPropertyPath());
+			assertEquals(mKeyValueOneTokenKey, added.getNewValue());
+
+			// a change and a removal inside of foo2
+			Map<String, Object> foo2 = new HashMap<String, Object>();
+			foo2.put("bar", mKeyValueOneTokenKey);
+			new Properties(mFilePathForEqualityTest).set("foo2", foo2);
+			waitForSize(fooDiffs, 1);
+			PropertiesDiff diff = fooDiffs.get(0);
+			assertEquals(0, diff.getAdded().size());
+			assertEquals(new PropertyPath("bar2"), diff.getRemoved().get(0)
+					.getPropertyPath());
+			PropertyChange change = diff.getChanged().get(0);
+			assertEquals(new PropertyPath("bar"), change.getPropertyPath());
+			assertEquals(mKeyValueTwoTokenKeys, change.getOldValue());
+			assertEquals(mKeyValueOneTokenKey, change.getNewValue());
+		} finally {
+			watched.stopWatching();
+		}
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests the asynchronous operations and that pending writes are
+	 * collapsed.
+	 *
+	 * @throws Exception
+	 *             If loading or storing the properties fails.
+	 */
+	@Test
+	public void testAsync() throws Exception {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+
+		// tasks only run when the test says so
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		Properties properties = new Properties(mFilePathForEqualityTest, true);
+		properties.setExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		});
+
+		// sets queued together are stored with one write
+		CompletableFuture<Void> first = properties.setAsync(mKeyOneTokenKey,
+				mKeyValueOneTokenKey);
+		CompletableFuture<Void> second = properties.get("foo2").setAsync(
+				"bar", mKeyValueTwoTokenKeys);
+		CompletableFuture<Map<String, Object>> loaded = properties
+				.loadAsync();
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertTrue(first.isDone() && second.isDone());
+		assertFalse(first.isCompletedExceptionally());
+		// the load only runs after the writes requested before
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(mKeyValueTwoTokenKeys, new Properties(
+				mFilePathForEqualityTest).getValue(mKeyTwoTokenKeys));
+		assertEquals(2, loaded.get().size());
+
+		// a save drops everything queued before
+		Map<String, Object> data = new HashMap<String, Object>();
+		data.put(mKeyOneTokenKey, "first");
+		CompletableFuture<Void> set = properties.setAsync(mKeyTwoTokenKeys,
+				mKeyValueOneTokenKey);
+		CompletableFuture<Void> save = properties.saveAsync(data);
+		data.put(mKeyOneTokenKey, "second");
+		CompletableFuture<Void> latest = properties.saveAsync(data);
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertTrue(set.isDone() && save.isDone() && latest.isDone());
+		assertEquals(0, tasks.size());
+		assertEquals(1, properties.load().size());
+		assertEquals("second", properties.getString(mKeyOneTokenKey));
+
+		// invalid values fail without a task
+		assertTrue(properties.setAsync(mKeyOneTokenKey, new Object())
+				.isCompletedExceptionally());
+		assertEquals(0, tasks.size());
+
+		// the default executor
+		properties.setExecutor(null);
+		properties.setAsync(mKeyOneTokenKey, "default").get(10,
+				TimeUnit.SECONDS);
+		assertEquals("default",
+				properties.loadAsync().get(10, TimeUnit.SECONDS)
+						.get(mKeyOneTokenKey));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	/**
+	 * Tests reading all property-files of a directory.
+	 *
+	 * @throws Exception
+	 *             If loading the properties from the files fails.
+	 */
+	@Test
+	public void testDirectoryProperties() throws Exception {
+		String directory = DIRECTORY_TEST_RESOURCES + "endpoints/";
+		new File(directory).mkdir();
+		String[] names = { "alpha", "beta", "gamma" };
+		for (String name : names) {
+			// clean the system
+			TestUtilities.deleteTestFile(directory + name + ".yml");
+			new Properties(directory + name + ".yml").set("server.host", name);
+		}
+
+		DirectoryProperties endpoints = new DirectoryProperties(directory);
+		assertEquals(3, endpoints.getNames().size());
+		assertEquals("beta", endpoints.getString("beta.server.host"));
+		assertEquals("none", endpoints.getString("delta.server.host", "none"));
+		assertEquals(3, endpoints.load().size());
+
+		// only the changed file is parsed again
+		Object alpha = endpoints.get("alpha").loadSubtree();
+		new Properties(directory + "gamma.yml").set("server.port", 8443);
+		assertEquals(8443, endpoints.getInt("gamma.server.port"));
+		assertSame(alpha, endpoints.get("alpha").loadSubtree());
+
+		// added and removed files are found by refresh
+		new Properties(directory + "delta.yml").set("server.host", "delta");
+		TestUtilities.checkAndDeleteTestFile(directory + "beta.yml");
+		endpoints.refresh();
+		assertEquals("delta", endpoints.getString("delta.server.host"));
+		assertFalse(endpoints.getNames().contains("beta"));
+		// the metrics of the removed file are unregistered
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(
+				new ObjectName("de.hshannover.f4.trust.ironcommon:"
+						+ "type=FileMetrics,file=" + ObjectName.quote(new File(
+						directory + "beta.yml").getCanonicalPath()))));
+
+		// a malformed file does not stop the others from being loaded
+		String broken = directory + "broken.yml";
+		Files.write(Paths.get(broken), "a: [b\n".getBytes("UTF-8"));
+		new Properties(directory + "alpha.yml").set("server.port", 1);
+		try {
+			endpoints.refresh();
+			throw new RuntimeException("broken.yml is malformed");
+		} catch (PropertyException e) {
+			// expected
+		}
+		assertEquals(1, endpoints.getInt("alpha.server.port"));
+		assertEquals("delta", endpoints.getString("delta.server.host"));
+		Files.delete(Paths.get(broken));
+		endpoints.refresh();
+
+		// files named after hosts are mounted under their whole name
+		new Properties(directory + "endpoint1.example.com.yml").set(
+				"server.port", 8444);
+		new Properties(directory + "endpoint1.yml").set("server.port", 8445);
+		endpoints.refresh();
+		assertTrue(endpoints.getNames().contains("endpoint1.example.com"));
+		assertEquals(8444,
+				endpoints.getInt("endpoint1.example.com.server.port"));
+		assertEquals(8445, endpoints.getInt("endpoint1.server.port"));
+		assertEquals(-1, endpoints.getInt("endpoint1.example.org.port", -1));
+
+		// tests if exists and clean the system
+		for (String name : endpoints.getNames()) {
+			TestUtilities.checkAndDeleteTestFile(directory + name + ".yml");
+		}
+		new File(directory).delete();
+	}
+
+	/**
+	 * Tests appending changes to the journal and compacting it.
+	 *
+	 * @throws Exception
+	 *             If loading or storing the properties fails.
+	 */
+	@Test
+	public void testJournal() throws Exception {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathForEqualityTest);
+		Path journal = YamlJournal.getJournalPath(mFilePathForEqualityTest);
+		Files.deleteIfExists(journal);
+
+		Properties properties = new Properties(mFilePathForEqualityTest, true);
+		properties.set(mKeyOneTokenKey, mKeyValueOneTokenKey);
+		properties.setJournalEnabled(true, TimeUnit.HOURS.toMillis(1));
+		byte[] content = Files.readAllBytes(Paths
+				.get(mFilePathForEqualityTest));
+
+		// the changes only go to the journal
+		properties.set(mKeyTwoTokenKeys, mKeyValueTwoTokenKeys);
+		properties.set(mKeyOneTokenKey, mKeyValueManyTokenKeys);
+		assertTrue(Arrays.equals(content,
+				Files.readAllBytes(Paths.get(mFilePathForEqualityTest))));
+		assertTrue(Files.exists(journal));
+		assertEquals(mKeyValueManyTokenKeys,
+				properties.getString(mKeyOneTokenKey));
+		// other instances apply the journal when loading
+		Properties other = new Properties(mFilePathForEqualityTest);
+		assertEquals(mKeyValueTwoTokenKeys, other.getString(mKeyTwoTokenKeys));
+		assertEquals(mKeyValueManyTokenKeys, new Properties(
+				mFilePathForEqualityTest, PropertiesMode.STREAMING)
+				.getString(mKeyOneTokenKey));
+
+		// a record that was not completely written is dropped
+		Files.write(journal, new byte[] { 0, 0, 1 }, StandardOpenOption.APPEND);
+		assertEquals(mKeyValueTwoTokenKeys, other.getString(mKeyTwoTokenKeys));
+		properties.set(mKeyManyTokenKeys, mKeyValueManyTokenKeys);
+		assertEquals(mKeyValueManyTokenKeys,
+				other.getString(mKeyManyTokenKeys));
+
+		// compacting writes the journal into the file
+		properties.compact();
+		assertFalse(Files.exists(journal));
+		assertEquals(mKeyValueManyTokenKeys,
+				other.getString(mKeyManyTokenKeys));
+		assertEquals(mKeyValueManyTokenKeys,
+				properties.getString(mKeyOneTokenKey));
+
+		// the background compaction
+		properties.setJournalEnabled(true, 50);
+		properties.set(mKeyOneTokenKey, mKeyValueOneTokenKey);
+		for (int i = 0; i < 100 && Files.exists(journal); i++) {
+			Thread.sleep(50);
+		}
+		assertFalse(Files.exists(journal));
+		assertEquals(mKeyValueOneTokenKey, other.getString(mKeyOneTokenKey));
+
+		// tests if exists and clean the system
+		TestUtilities.checkAndDeleteTestFile(mFilePathForEqualityTest);
+	}
+
+	private static void waitForSize(List<?> list, int size)
+			throws InterruptedException {
+		for (int i = 0; i < 100 && list.size() < size; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(size, list.size());
+	}
+
+	/**
+	 * A class for {@link #testBind()}.
+	 */
+	public static class ServerConfig {
+
+		private String mHost;
+
+		private int mPort;
+
+		private boolean secure;
+
+		private Timeout timeout;
+
+		/**
+		 * @return the host
+		 */
+		public String getHost() {
+			return mHost;
+		}
+
+		/**
+		 * @param host
+		 *            the host
+		 */
+		public void setHost(String host) {
+			mHost = host;
+		}
+
+		/**
+		 * @return the port
+		 */
+		public int getPort() {
+			return mPort;
+		}
+
+		/**
+		 * @param port
+		 *            the port
+		 */
+		public void setPort(int port) {
+			mPort = port;
+		}
+	}
+
+	/**
+	 * A nested class for {@link #testBind()}.
+	 */
+	static class Timeout {
+
+		private long millis;
+	}
 }
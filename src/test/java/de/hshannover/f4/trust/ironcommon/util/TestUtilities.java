@@ -152,4 +152,66 @@ public final class TestUtilities {
 		collectionsTestMap.put("mTestSet", buildTestSet());
 		return collectionsTestMap;
 	}
+
+	/**
+	 * @return a class that is not public with overloaded setters, for
+	 *         binding property subtrees; its instances are printed as
+	 *         "host:port"
+	 */
+	public static Class<?> getEndpointClass() {
+		return Endpoint.class;
+	}
+
+	/**
+	 * A class that is not public with overloaded setters.
+	 */
+	static final class Endpoint {
+
+		private String mHost;
+
+		private int mPort;
+
+		/**
+		 * @param host
+		 *            the host
+		 */
+		public void setHost(String host) {
+			mHost = host;
+		}
+
+		/**
+		 * @param port
+		 *            the port
+		 */
+		public void setPort(int port) {
+			mPort = port;
+		}
+
+		/**
+		 * @param port
+		 *            the port as text
+		 */
+		public void setPort(String port) {
+			mPort = -1;
+		}
+
+		/**
+		 * @param mode
+		 *            the mode as text
+		 */
+		public void setMode(String mode) {
+		}
+
+		/**
+		 * @param mode
+		 *            the mode as number
+		 */
+		public void setMode(Integer mode) {
+		}
+
+		@Override
+		public String toString() {
+			return mHost + ":" + mPort;
+		}
+	}
 }
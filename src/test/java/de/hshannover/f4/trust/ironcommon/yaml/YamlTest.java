@@ -40,16 +40,33 @@
 package de.hshannover.f4.trust.ironcommon.yaml;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import de.hshannover.f4.trust.ironcommon.util.FileLocks;
+import de.hshannover.f4.trust.ironcommon.util.FileMetrics;
 import de.hshannover.f4.trust.ironcommon.util.TestUtilities;
 
 /**
@@ -318,4 +335,473 @@ public class YamlTest {
 		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
 	}
 
+	/**
+	 * Tests that {@link YamlWriter} does not rewrite a file with the same
+	 * content and leaves no temporary files behind.
+	 *
+	 * @throws IOException
+	 *             thrown when the file could not be written
+	 */
+	@Test
+	public void testYamlWriterSkipsUnchangedContent() throws IOException {
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathCollectionsTest);
+
+		File file = new File(mFilePathCollectionsTest);
+		YamlWriter.persist(mFilePathCollectionsTest, mCollectionsTestMap);
+		assertTrue(file.setLastModified(1000));
+
+		// same content, the file is not touched
+		YamlWriter.persist(mFilePathCollectionsTest, mCollectionsTestMap, true);
+		assertEquals(1000, file.lastModified());
+
+		// new content replaces the file
+		YamlWriter.persist(mFilePathCollectionsTest, mCollectionsTestList, true);
+		assertTrue(file.lastModified() != 1000);
+		assertEquals(mCollectionsTestList,
+				YamlReader.loadAs(mFilePathCollectionsTest, List.class));
+
+		for (String name : file.getAbsoluteFile().getParentFile().list()) {
+			assertTrue(name, !name.endsWith(".tmp"));
+		}
+
+		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
+	}
+
+	/**
+	 * Tests that a lock stays registered while it is held and is dropped
+	 * once no one references it.
+	 *
+	 * @throws InterruptedException
+	 *             if the test is interrupted
+	 */
+	@Test
+	public void testFileLocksAreReleased() throws InterruptedException {
+		String fileName = mFilePathEmptyMapTest + ".released";
+		Lock held = FileLocks.getLock(fileName).writeLock();
+		held.lock();
+		try {
+			collectGarbage(null);
+			assertSame(held, FileLocks.getLock(fileName).writeLock());
+		} finally {
+			held.unlock();
+		}
+		held = null;
+
+		WeakReference<ReadWriteLock> unused = new WeakReference<ReadWriteLock>(
+				FileLocks.getLock(fileName));
+		collectGarbage(unused);
+		assertTrue(unused.get() == null);
+	}
+
+	private static void collectGarbage(WeakReference<?> reference)
+			throws InterruptedException {
+		for (int i = 0; i < 5
+				&& (reference == null || reference.get() != null); i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Tests that all names of a file share one lock and that concurrent
+	 * readers and writers of a file always see a complete file.
+	 *
+	 * @throws Exception
+	 *             thrown when the file could not be read or written
+	 */
+	@Test
+	public void testConcurrentReadersAndWriters() throws Exception {
+		assertSame(FileLocks.getLock(mFilePathCollectionsTest),
+				FileLocks.getLock("./" + mFilePathCollectionsTest));
+		assertTrue(FileLocks.getLock(mFilePathCollectionsTest) != FileLocks
+				.getLock(mFilePathEmptyMapTest));
+
+		// clean the system
+		TestUtilities.deleteTestFile(mFilePathCollectionsTest);
+		YamlWriter.persist(mFilePathCollectionsTest, mCollectionsTestMap);
+
+		final List<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			final boolean writer = i == 0;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < 50; j++) {
+							if (writer) {
+								YamlWriter.persist(mFilePathCollectionsTest,
+										j % 2 == 0 ? mCollectionsTestMap
+												: TestUtilities.buildTestMap());
+							} else {
+								assertEquals(mCollectionsTestMap, YamlReader
+										.loadMap(mFilePathCollectionsTest));
+							}
+						}
+					} catch (Throwable t) {
+						failures.add(t);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(new ArrayList<Throwable>(), failures);
+
+		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
+	}
+
+	/**
+	 * Tests that {@link YamlReader#loadValue(String, String...)} returns the
+	 * same values as walking the {@link Map} of
+	 * {@link YamlReader#loadMap(String)}, also for duplicate keys, keys that
+	 * are not strings, aliases and merge keys.
+	 *
+	 * @throws IOException
+	 *             thrown when the file could not be read or written
+	 */
+	@Test
+	public void testLoadValue() throws IOException {
+		TestUtilities.deleteTestFile(mFilePathCollectionsTest);
+		String yaml = "skip:\n  a: [1, {b: 2}, [3]]\n  c: {d: e}\n"
+				+ "1: number\n'2': string\n"
+				+ "dup: {x: 1}\ndup: {y: 2}\n"
+				+ "anchor: &a {k: v, l: [1, 2]}\n"
+				+ "alias: *a\n"
+				+ "inner: {ref: *a, list: [*a]}\n"
+				+ "merge: {<<: *a, m: n}\n"
+				+ "scalar: text\n"
+				+ "empty:\n";
+		Files.write(Paths.get(mFilePathCollectionsTest),
+				yaml.getBytes(YamlWriter.CHARSET));
+
+		String[][] paths = { {}, { "skip" }, { "skip", "a" },
+				{ "skip", "c", "d" }, { "1" }, { "2" }, { "dup" },
+				{ "dup", "x" }, { "dup", "y" }, { "anchor", "l" },
+				{ "alias" }, { "alias", "k" }, { "inner", "ref" },
+				{ "inner", "list" }, { "merge", "k" }, { "merge", "m" },
+				{ "scalar" }, { "scalar", "more" }, { "empty" },
+				{ "missing" }, { "skip", "missing" } };
+		Map<String, Object> map = YamlReader.loadMap(mFilePathCollectionsTest);
+		for (String[] path : paths) {
+			Object expected = map;
+			for (String key : path) {
+				if (!(expected instanceof Map)) {
+					break;
+				}
+				expected = ((Map<?, ?>) expected).get(key);
+			}
+			assertEquals(Arrays.toString(path), expected,
+					YamlReader.loadValue(mFilePathCollectionsTest, path));
+		}
+
+		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
+	}
+
+	/**
+	 * Tests that {@link YamlSnapshot} returns the same content as
+	 * {@link YamlReader}, compiles the snapshot again when the yml-file
+	 * changes and ignores corrupt snapshots.
+	 *
+	 * @throws IOException
+	 *             thrown when the file could not be read or written
+	 */
+	@Test
+	public void testSnapshot() throws IOException {
+		TestUtilities.deleteTestFile(mFilePathCollectionsTest);
+		Path snapshot = YamlSnapshot.getSnapshotPath(mFilePathCollectionsTest);
+		Files.deleteIfExists(snapshot);
+
+		String yaml = "a: {b: [1, 2.5, true, null, text]}\n"
+				+ "1: number\n'2': string\n"
+				+ "big: 123456789012345678901234567890\n"
+				+ "long: 12345678901234\nnested: {c: {d: e}}\n";
+		Files.write(Paths.get(mFilePathCollectionsTest),
+				yaml.getBytes(YamlWriter.CHARSET));
+		Map<String, Object> expected = YamlReader
+				.loadMap(mFilePathCollectionsTest);
+
+		// the first load compiles the snapshot, the second one reads it
+		assertEquals(expected, YamlSnapshot.loadMap(mFilePathCollectionsTest));
+		assertTrue(Files.exists(snapshot));
+		assertEquals(expected, YamlSnapshot.loadMap(mFilePathCollectionsTest));
+		assertEquals(expected.get("a"),
+				YamlSnapshot.loadValue(mFilePathCollectionsTest, "a"));
+		assertEquals("e", YamlSnapshot.loadValue(mFilePathCollectionsTest,
+				"nested", "c", "d"));
+		assertEquals("string",
+				YamlSnapshot.loadValue(mFilePathCollectionsTest, "2"));
+		assertEquals(null,
+				YamlSnapshot.loadValue(mFilePathCollectionsTest, "1"));
+		assertEquals(expected.get("long"), YamlSnapshot.loadValue(
+				mFilePathCollectionsTest, "long", "more"));
+
+		// the snapshot of an unchanged file is neither mapped nor read again
+		FileMetrics metrics = FileMetrics.getMetrics(mFilePathCollectionsTest);
+		metrics.reset();
+		YamlSnapshot.loadMap(mFilePathCollectionsTest);
+		YamlSnapshot.loadValue(mFilePathCollectionsTest, "a");
+		assertEquals(2 * yaml.getBytes(YamlWriter.CHARSET).length,
+				metrics.getBytesRead());
+		assertEquals(0, metrics.getParseCount());
+
+		// a changed file is parsed again
+		Files.write(Paths.get(mFilePathCollectionsTest),
+				"a: changed\n".getBytes(YamlWriter.CHARSET));
+		assertEquals("changed",
+				YamlSnapshot.loadValue(mFilePathCollectionsTest, "a"));
+
+		// a corrupt snapshot is ignored
+		byte[] data = Files.readAllBytes(snapshot);
+		Files.write(snapshot, Arrays.copyOf(data, data.length - 3));
+		assertEquals("changed",
+				YamlSnapshot.loadMap(mFilePathCollectionsTest).get("a"));
+
+		// values a snapshot can not hold
+		Files.delete(snapshot);
+		Files.write(Paths.get(mFilePathCollectionsTest),
+				"date: 2001-12-14\n".getBytes(YamlWriter.CHARSET));
+		assertEquals(YamlReader.loadMap(mFilePathCollectionsTest),
+				YamlSnapshot.loadMap(mFilePathCollectionsTest));
+		assertTrue(!Files.exists(snapshot));
+
+		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
+	}
+
+	/**
+	 * Tests looking up values in a {@link YamlBuffer}, including large maps
+	 * with an index and keys with equal hash codes.
+	 */
+	@Test
+	public void testBuffer() {
+		Map<String, Object> map = new HashMap<String, Object>();
+		Map<Object, Object> large = new HashMap<Object, Object>();
+		for (int i = 0; i < 100; i++) {
+			large.put("key" + i, i);
+		}
+		// "Aa" and "BB" have the same hash code
+		large.put("Aa", "first");
+		large.put("BB", Arrays.asList("second", 2.5));
+		large.put(7, "number");
+		map.put("large", large);
+		map.put("small", Collections.singletonMap("a", true));
+		map.put("text", "value");
+
+		YamlBuffer buffer = YamlBuffer.encode(map);
+		assertTrue(buffer.getByteSize() > 0);
+		assertEquals(map, buffer.toMap());
+		assertEquals(42, buffer.get("large", "key42"));
+		assertEquals(99, buffer.get("large", "key99"));
+		assertEquals("first", buffer.get("large", "Aa"));
+		assertEquals(Arrays.asList("second", 2.5), buffer.get("large", "BB"));
+		assertEquals(null, buffer.get("large", "C#"));
+		assertEquals(null, buffer.get("large", "7"));
+		assertEquals(null, buffer.get("large", "key100"));
+		assertEquals(true, buffer.get("small", "a"));
+		assertEquals(large, buffer.get("large"));
+		assertEquals("value", buffer.get("text", "more"));
+		assertEquals(null, buffer.get("missing"));
+
+		map.put("object", new Object());
+		assertEquals(null, YamlBuffer.encode(map));
+	}
+
+	/**
+	 * Tests that a {@link YamlInterner} shares equal keys, values and
+	 * subtrees and that shared subtrees are written without aliases.
+	 *
+	 * @throws IOException
+	 *             If loading or storing the yml-file fails.
+	 */
+	@Test
+	public void testInterner() throws IOException {
+		TestUtilities.deleteTestFile(mFilePathCollectionsTest);
+		String yaml = "a: {tls: {cert: server.pem, verify: true}, port: 1}\n"
+				+ "b: {tls: {cert: server.pem, verify: true}, port: 2}\n"
+				+ "c: [x, y]\nd: [x, y]\ne: [x, 1]\n"
+				+ "f: {zeta: 1, alpha: 2, mid: 3}\n"
+				+ "g: {alpha: 2, zeta: 1, mid: 3}\n";
+		Files.write(Paths.get(mFilePathCollectionsTest),
+				yaml.getBytes(YamlWriter.CHARSET));
+		Map<String, Object> loaded = YamlReader
+				.loadMap(mFilePathCollectionsTest);
+
+		YamlInterner interner = new YamlInterner(100);
+		Map<String, Object> shared = interner.intern(loaded, true);
+		assertEquals(loaded, shared);
+		Map<?, ?> a = (Map<?, ?>) shared.get("a");
+		Map<?, ?> b = (Map<?, ?>) shared.get("b");
+		assertSame(a.get("tls"), b.get("tls"));
+		assertSame(shared.get("c"), shared.get("d"));
+		assertTrue(shared.get("c") != shared.get("e"));
+
+		// a second load shares the content of the first one
+		Map<String, Object> again = interner.intern(
+				YamlReader.loadMap(mFilePathCollectionsTest), true);
+		assertSame(a.get("tls"), ((Map<?, ?>) again.get("a")).get("tls"));
+		assertSame(shared.get("e"), again.get("e"));
+
+		// only keys and scalar values
+		Map<String, Object> owned = interner.intern(loaded, false);
+		assertEquals(loaded, owned);
+		Map<?, ?> ownedA = (Map<?, ?>) owned.get("a");
+		assertTrue(ownedA.get("tls") != ((Map<?, ?>) owned.get("b"))
+				.get("tls"));
+		assertSame(((Map<?, ?>) a.get("tls")).get("cert"),
+				((Map<?, ?>) ownedA.get("tls")).get("cert"));
+
+		// the order of the keys is kept and only shared with the same order
+		assertEquals(Arrays.asList("zeta", "alpha", "mid"),
+				new ArrayList<Object>(((Map<?, ?>) shared.get("f")).keySet()));
+		assertEquals(Arrays.asList("alpha", "zeta", "mid"),
+				new ArrayList<Object>(((Map<?, ?>) shared.get("g")).keySet()));
+		assertTrue(shared.get("f") != shared.get("g"));
+		assertEquals(Arrays.asList("zeta", "alpha", "mid"),
+				new ArrayList<Object>(((Map<?, ?>) owned.get("f")).keySet()));
+
+		// the table is bounded
+		YamlInterner small = new YamlInterner(3);
+		small.intern(loaded, true);
+		assertEquals(3, small.getSize());
+		small.clear();
+		assertEquals(0, small.getSize());
+
+		// shared subtrees are written at every occurrence
+		YamlWriter.persist(mFilePathCollectionsTest, shared);
+		String written = new String(Files.readAllBytes(Paths
+				.get(mFilePathCollectionsTest)), YamlWriter.CHARSET);
+		assertTrue(!written.contains("&") && !written.contains("*"));
+		assertEquals(loaded, YamlReader.loadMap(mFilePathCollectionsTest));
+
+		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
+	}
+
+	/**
+	 * Tests that changed values are replaced in the text of a yml-file and
+	 * that everything else is kept.
+	 *
+	 * @throws IOException
+	 *             If loading or storing the yml-file fails.
+	 */
+	@Test
+	public void testPatch() throws IOException {
+		String yaml = "# endpoints\n" + "server:\n"
+				+ "  host: localhost   # the host\n" + "  port: 8443\n"
+				+ "  list:\n" + "  - a  # first\n" + "  - b\n"
+				+ "\n# the end\n" + "z: 1\n";
+
+		assertEquals(yaml.replace("localhost", "example.org"),
+				patch(yaml, "example.org", "server", "host"));
+		assertEquals(yaml.replace("8443", "'8443'"),
+				patch(yaml, "8443", "server", "port"));
+		assertEquals(yaml.replace("  - a  # first\n  - b", "  - c"),
+				patch(yaml, Arrays.asList("c"), "server", "list"));
+		Map<String, Object> map = new TreeMap<String, Object>();
+		map.put("x", 1);
+		map.put("y", Arrays.asList(2, 3));
+		assertEquals(yaml.replace("z: 1", "z:\n  x: 1\n  y:\n  - 2\n  - 3"),
+				patch(yaml, map, "z"));
+		assertEquals(yaml.replace("8443", "{}"),
+				patch(yaml, new TreeMap<String, Object>(), "server", "port"));
+
+		// the whole content has to be dumped
+		assertEquals(null, patch(yaml, "new", "server", "missing"));
+		assertEquals(null, patch(yaml, "a\nb", "server", "host"));
+		assertEquals(null, patch(yaml, "new", "server", "host", "deeper"));
+		assertEquals(null, patch("a: {b: 1}\n", 2, "a", "b"));
+		assertEquals(null, patch("a: &x 1\nb: *x\n", 2, "a"));
+		assertEquals(null, patch("a: 1\na: 2\n", 3, "a"));
+		assertEquals(null, patch("a: |\n  text\n", 3, "a"));
+
+		// an empty value needs the space after the colon
+		assertEquals("a: 5 # comment\nb: 1\n",
+				patch("a: # comment\nb: 1\n", 5, "a"));
+		assertEquals("a: 5\nb: 1\n", patch("a:\nb: 1\n", 5, "a"));
+		assertEquals("a:\n  x: 1 # comment\nb: 1\n", patch(
+				"a: # comment\nb: 1\n", Collections.singletonMap("x", 1), "a"));
+
+		// through the writer
+		TestUtilities.deleteTestFile(mFilePathCollectionsTest);
+		Files.write(Paths.get(mFilePathCollectionsTest),
+				yaml.getBytes(YamlWriter.CHARSET));
+		Map<String, Object> expected = YamlReader
+				.loadMap(mFilePathCollectionsTest);
+		expected.put("z", 2);
+		List<Map.Entry<String[], Object>> changes = new ArrayList<Map.Entry<String[], Object>>();
+		changes.add(new SimpleImmutableEntry<String[], Object>(
+				new String[] { "z" }, 2));
+		YamlWriter.persist(mFilePathCollectionsTest, expected, changes);
+		assertEquals(yaml.replace("z: 1", "z: 2"), new String(Files
+				.readAllBytes(Paths.get(mFilePathCollectionsTest)),
+				YamlWriter.CHARSET));
+		assertEquals(expected, YamlReader.loadMap(mFilePathCollectionsTest));
+
+		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
+	}
+
+	/**
+	 * Tests compacting a journal into a yml-file with an empty value
+	 * followed by a comment.
+	 *
+	 * @throws IOException
+	 *             If loading or storing the yml-file fails.
+	 */
+	@Test
+	public void testJournalCompaction() throws IOException {
+		TestUtilities.deleteTestFile(mFilePathCollectionsTest);
+		YamlJournal.delete(mFilePathCollectionsTest);
+		String yaml = "a: # comment\nb: 1\n";
+		Files.write(Paths.get(mFilePathCollectionsTest),
+				yaml.getBytes(YamlWriter.CHARSET));
+
+		List<Map.Entry<String[], Object>> changes = new ArrayList<Map.Entry<String[], Object>>();
+		changes.add(new SimpleImmutableEntry<String[], Object>(
+				new String[] { "a" }, 5));
+		assertTrue(YamlJournal.append(mFilePathCollectionsTest, changes));
+		assertTrue(YamlJournal.compact(mFilePathCollectionsTest));
+		assertTrue(!YamlJournal.exists(mFilePathCollectionsTest));
+
+		assertEquals("a: 5 # comment\nb: 1\n", new String(Files
+				.readAllBytes(Paths.get(mFilePathCollectionsTest)),
+				YamlWriter.CHARSET));
+		Map<String, Object> loaded = YamlReader
+				.loadMap(mFilePathCollectionsTest);
+		assertEquals(5, loaded.get("a"));
+		assertEquals(1, loaded.get("b"));
+
+		TestUtilities.checkAndDeleteTestFile(mFilePathCollectionsTest);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String patch(String yaml, Object value, String... keys) {
+		List<Map.Entry<String[], Object>> changes = new ArrayList<Map.Entry<String[], Object>>();
+		changes.add(new SimpleImmutableEntry<String[], Object>(keys, value));
+		// the content the patched text has to stand for
+		Map<String, Object> expected = (Map<String, Object>) new org.yaml.snakeyaml.Yaml()
+				.load(yaml);
+		Map<String, Object> map = expected;
+		for (int i = 0; i < keys.length - 1; i++) {
+			Object nested = map.get(keys[i]);
+			if (!(nested instanceof Map)) {
+				nested = new HashMap<String, Object>();
+				map.put(keys[i], nested);
+			}
+			map = (Map<String, Object>) nested;
+		}
+		map.put(keys[keys.length - 1], value);
+		String patched = YamlPatcher.patch(yaml, expected, changes);
+		if (patched != null) {
+			// the patched text is parsed like the dumped content
+			Object loaded = new org.yaml.snakeyaml.Yaml().load(patched);
+			Object walked = loaded;
+			for (String key : keys) {
+				walked = ((Map<?, ?>) walked).get(key);
+			}
+			assertEquals(value, walked);
+		}
+		return patched;
+	}
 }